@@ -0,0 +1,84 @@
+package com.logicalpractice.chronicle.blockingqueue;
+
+import com.google.common.io.Files;
+import net.openhft.lang.io.Bytes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of offer with an increasing number of producer threads, while a single consumer
+ * drains the queue in the background.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class MultiProducerBenchmark {
+
+    private File directory;
+    private ChronicleBlockingQueue<Long> queue;
+    private Thread consumer;
+
+    @Setup
+    public void setUp() {
+        directory = Files.createTempDir();
+        queue = ChronicleBlockingQueue.<Long>builder(directory)
+                .serializer((Long value, Bytes bytes) -> bytes.writeLong(value))
+                .deserializer(Bytes::readLong)
+                .multiProducer(true)
+                .build();
+        consumer = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                queue.poll();
+            }
+        }, "consumer");
+        consumer.start();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        consumer.interrupt();
+        consumer.join();
+        queue.close();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean offer1() {
+        return queue.offer(42L);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public boolean offer2() {
+        return queue.offer(42L);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean offer4() {
+        return queue.offer(42L);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean offer8() {
+        return queue.offer(42L);
+    }
+}
@@ -0,0 +1,65 @@
+package com.logicalpractice.chronicle.blockingqueue;
+
+import net.openhft.lang.io.ByteBufferBytes;
+import net.openhft.lang.io.Bytes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a serialize and deserialize round trip through the default writeObject / readObject pair
+ * compared with the {@link ElementCodec} for the element's type.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class SerializerBenchmark {
+
+    @Param({"long", "string", "bytes"})
+    public String type;
+
+    private Object element;
+    private ElementCodec<Object> codec;
+    private Bytes bytes;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        switch (type) {
+            case "long":
+                element = 42L;
+                break;
+            case "string":
+                element = "a reasonably typical message of some length";
+                break;
+            default:
+                element = new byte[64];
+        }
+        codec = (ElementCodec<Object>) ElementCodec.forType(element.getClass());
+        bytes = new ByteBufferBytes(ByteBuffer.allocateDirect(1024));
+    }
+
+    @Benchmark
+    public Object writeObject() {
+        bytes.clear();
+        bytes.writeObject(element);
+        bytes.position(0L);
+        return bytes.readObject();
+    }
+
+    @Benchmark
+    public Object elementCodec() {
+        bytes.clear();
+        codec.serialize(element, bytes);
+        bytes.position(0L);
+        return codec.deserialize(bytes);
+    }
+}
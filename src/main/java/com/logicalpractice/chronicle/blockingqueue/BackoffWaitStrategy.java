@@ -0,0 +1,68 @@
+package com.logicalpractice.chronicle.blockingqueue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Progressive back off, spins then yields then parks the thread for exponentially increasing periods.
+ *
+ * <p>The park period starts at minParkNanos and doubles with each attempt until it reaches
+ * maxParkNanos, which bounds the latency of noticing a change once the waiting thread is fully
+ * backed off.</p>
+ */
+public class BackoffWaitStrategy extends IdlingWaitStrategy {
+
+    private final int spins;
+    private final int yields;
+    private final long minParkNanos;
+    private final long maxParkNanos;
+
+    public BackoffWaitStrategy() {
+        this(100, 10, TimeUnit.MICROSECONDS.toNanos(1), TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    /**
+     * @param spins number of attempts to spin for
+     * @param yields number of attempts to yield for after spinning
+     * @param minParkNanos initial park period
+     * @param maxParkNanos upper limit of the park period
+     */
+    public BackoffWaitStrategy(int spins, int yields, long minParkNanos, long maxParkNanos) {
+        if (spins < 0 || yields < 0) {
+            throw new IllegalArgumentException("spins and yields must not be negative");
+        }
+        if (minParkNanos <= 0 || maxParkNanos < minParkNanos) {
+            throw new IllegalArgumentException("invalid park range " + minParkNanos + ".." + maxParkNanos);
+        }
+        this.spins = spins;
+        this.yields = yields;
+        this.minParkNanos = minParkNanos;
+        this.maxParkNanos = maxParkNanos;
+    }
+
+    @Override
+    protected void idle(int counter, long remaining) {
+        if (counter < spins) {
+            return;
+        }
+        if (counter < spins + yields) {
+            Thread.yield();
+            return;
+        }
+        int parks = counter - spins - yields;
+        long period = parks < Long.numberOfLeadingZeros(minParkNanos) - 1 // guard against overflow
+                ? Math.min(minParkNanos << parks, maxParkNanos)
+                : maxParkNanos;
+        LockSupport.parkNanos(Math.min(period, remaining));
+    }
+
+    @Override
+    public String toString() {
+        return "BackoffWaitStrategy{" +
+                "spins=" + spins +
+                ", yields=" + yields +
+                ", minParkNanos=" + minParkNanos +
+                ", maxParkNanos=" + maxParkNanos +
+                '}';
+    }
+}
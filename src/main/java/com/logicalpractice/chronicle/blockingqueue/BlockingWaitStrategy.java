@@ -0,0 +1,93 @@
+package com.logicalpractice.chronicle.blockingqueue;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Waiting threads park until unparked by the queue signalling a change.
+ *
+ * <p>Consumes no CPU while waiting, but only notices changes made through the same queue instance
+ * (changes made by another process are not signalled). A short spin before parking keeps the wake up
+ * latency low when the queue is busy. An instance should not be shared between queues, doing so
+ * causes needless wake ups.</p>
+ */
+public class BlockingWaitStrategy implements WaitStrategy {
+
+    private final Queue<Thread> waiters = new ConcurrentLinkedQueue<>();
+    private final AtomicLong signals = new AtomicLong();
+    private final int spins;
+
+    public BlockingWaitStrategy() {
+        this(100);
+    }
+
+    /**
+     * @param spins number of attempts to make before registering as a waiter and parking
+     */
+    public BlockingWaitStrategy(int spins) {
+        if (spins < 0) {
+            throw new IllegalArgumentException("spins must not be negative");
+        }
+        this.spins = spins;
+    }
+
+    @Override
+    public <T> T waitFor(Supplier<T> attempt, long deadline) throws InterruptedException {
+        T result;
+        for (int i = 0; i < spins; i++) {
+            if ((result = attempt.get()) != null) {
+                return result;
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (WaitStrategy.remaining(deadline) <= 0) {
+                return null;
+            }
+        }
+
+        Thread current = Thread.currentThread();
+        waiters.add(current);
+        try {
+            while (true) {
+                long seen = signals.get();
+                if ((result = attempt.get()) != null) {
+                    return result;
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                long remaining = WaitStrategy.remaining(deadline);
+                if (remaining <= 0) {
+                    return null;
+                }
+                if (signals.get() == seen) {
+                    // a signal after this point will find current in waiters and unpark it
+                    LockSupport.parkNanos(this, remaining);
+                }
+            }
+        } finally {
+            waiters.remove(current);
+        }
+    }
+
+    @Override
+    public void signalAll() {
+        // the increment is a full fence, ordering the preceding change to the queue before the read
+        // of waiters. Without it a waiter could miss both the change and this signal.
+        signals.incrementAndGet();
+        if (!waiters.isEmpty()) {
+            for (Thread waiter : waiters) {
+                LockSupport.unpark(waiter);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BlockingWaitStrategy{spins=" + spins + '}';
+    }
+}
@@ -0,0 +1,17 @@
+package com.logicalpractice.chronicle.blockingqueue;
+
+/**
+ * Retries immediately, lowest latency at the expense of a full core per waiting thread.
+ */
+public class BusySpinWaitStrategy extends IdlingWaitStrategy {
+
+    @Override
+    protected void idle(int counter, long remaining) {
+        // nothing to do, spin
+    }
+
+    @Override
+    public String toString() {
+        return "BusySpinWaitStrategy";
+    }
+}
@@ -0,0 +1,18 @@
+package com.logicalpractice.chronicle.blockingqueue;
+
+import net.openhft.lang.io.Bytes;
+
+/**
+ * Receives the serialized form of an element in place, see
+ * {@link ChronicleBlockingQueue#poll(BytesConsumer)}.
+ */
+public interface BytesConsumer {
+
+    /**
+     * Read the element from the given bytes.
+     *
+     * @param bytes required Bytes positioned such that the next byte is the first
+     *              byte of the serialized value, only valid for the duration of the call
+     */
+    void accept(Bytes bytes);
+}
@@ -0,0 +1,18 @@
+package com.logicalpractice.chronicle.blockingqueue;
+
+import net.openhft.lang.io.Bytes;
+
+/**
+ * Writes an element's serialized form straight into the queue, see
+ * {@link ChronicleBlockingQueue#offerBytes(int, BytesWriter)}.
+ */
+public interface BytesWriter {
+
+    /**
+     * Write the element to the given bytes.
+     *
+     * @param bytes required bytes, is expected that the bytes internal position will be advanced
+     *              as the implementation writes, only valid for the duration of the call
+     */
+    void write(Bytes bytes);
+}
@@ -1,27 +1,47 @@
 package com.logicalpractice.chronicle.blockingqueue;
 
+import com.google.common.base.Throwables;
 import com.google.common.collect.AbstractIterator;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
 import net.openhft.chronicle.Chronicle;
 import net.openhft.chronicle.ChronicleQueueBuilder;
 import net.openhft.chronicle.ExcerptAppender;
 import net.openhft.chronicle.ExcerptTailer;
+import net.openhft.lang.io.ByteBufferBytes;
 import net.openhft.lang.io.Bytes;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.IntFunction;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
-import static java.util.concurrent.TimeUnit.NANOSECONDS;
-
 /**
  * BlockingQueue implementation backed by a series of Chronicle Queues.
  *
@@ -31,8 +51,24 @@ public class ChronicleBlockingQueue<E> implements BlockingQueue<E>, AutoCloseabl
 
     private final static int NOT_SET = -1;
 
+    // header of each entry with chunkedMessages
+    private final static byte WHOLE_ENTRY = 0;
+    private final static byte FIRST_CHUNK = 1; // followed by the length of the whole entry
+    private final static byte NEXT_CHUNK = 2;
+    private final static byte LAST_CHUNK = 3;
+    private final static int FIRST_CHUNK_HEADER = 9;
+    private final static int MAX_CHUNKED_LENGTH = Integer.MAX_VALUE - 8;
+    private final static int DRAIN_BATCH = 64; // entries claimed by each compare and swap in drainCompeting
+    private final static int APPEND_BATCH = 64; // elements appended by offerBatch per hold of the append lock
+
     private final Builder<E> config;
     private final ChroniclePosition position;
+    private final ChronicleCounters counters;
+    private final WaitStrategy waitStrategy;
+    private final ChronicleSignal signal;
+    private final ChronicleManifest manifest;
+    private final long instanceId = UUID.randomUUID().getMostSignificantBits() | 1L; // never zero
+    private final boolean competingConsumers;
 
     private ExcerptAppender cachedAppender;
 
@@ -40,27 +76,128 @@ public class ChronicleBlockingQueue<E> implements BlockingQueue<E>, AutoCloseabl
     private ExcerptTailer cachedTailer;
 
     private int cachedTailerSlabIndex = NOT_SET;
-
-    private int numberOfSlabs;
+    // position the cached tailer was left at by the last poll or drain, so that the next one needn't
+    // seek it through the index unless the position has been changed by another queue instance
+    private long cachedTailerPosition = NOT_SET;
+
+    private final Lock appendLock = new ReentrantLock();
+
+    // once an excerpt of fullWeight didn't fit with no slabs left, excerpts at least as large fail
+    // fast until the slab range changes, rather than throwing and catching on every offer
+    private int fullWeight = Integer.MAX_VALUE;
+    private long fullSlabRange = NOT_SET;
+
+    // background creation of the slab after the one being appended to, only with preallocateSlabs
+    private final ExecutorService slabPreallocator;
+    private Future<Chronicle> preallocatedSlab; // confined to the producer, like cachedAppender
+    private int preallocatedSlabIndex = NOT_SET;
+
+    private final SlabPool slabPool;
+    private final SlabCache slabCache;
+    private final SlabReclaimer slabReclaimer; // only with maxPendingSlabDeletions
+    private final ThreadLocal<Bytes> scratch;
+    private final LongAdder reservationBytesSaved = new LongAdder();
+    private final WeightEstimator weightEstimator; // only with weightEstimatePercentile
+    private final LongAdder estimateOverflows = new LongAdder();
+
+    private final Function<Bytes, E> elementReader = this::deserialise;
+    private final ThreadLocal<ConsumerReader> consumerReaders = ThreadLocal.withInitial(ConsumerReader::new);
+
+    private final Set<ConsumerTailer> allConsumerTailers = ConcurrentHashMap.newKeySet();
+    private final ThreadLocal<ConsumerTailer> consumerTailers = ThreadLocal.withInitial(() -> {
+        ConsumerTailer consumer = new ConsumerTailer();
+        allConsumerTailers.add(consumer);
+        return consumer;
+    });
 
     private ChronicleBlockingQueue(
             Builder<E> builder
     ) {
         this.config = builder.clone();
+        this.competingConsumers = config.competingConsumers || config.multiProcess;
+        if (config.sharedSignal) {
+            this.signal = new ChronicleSignal(new File(config.storageDirectory, config.name + ".signal"));
+            this.waitStrategy = new SharedSignalWaitStrategy(signal);
+        } else {
+            this.signal = null;
+            this.waitStrategy = config.waitStrategy;
+        }
+        this.slabPreallocator = config.preallocateSlabs
+                ? Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                        .setNameFormat(config.name + "-slab-preallocator")
+                        .setDaemon(true)
+                        .build())
+                : null;
+        this.slabPool = new SlabPool(config.storageDirectory, config.name, config.slabPoolSize);
+        this.slabCache = new SlabCache(this::chronicle, config.maxIdleSlabs);
+        this.slabReclaimer = config.maxPendingSlabDeletions > 0
+                ? new SlabReclaimer(config.name, config.maxPendingSlabDeletions, slabPool)
+                : null;
 
         // basic initialisation
         File positionFile = new File(config.storageDirectory, config.name + ".position");
         boolean newPositionFile = !positionFile.exists();
 
         this.position = new ChroniclePosition(positionFile);
-        int slab = lastSlabIndex();
-        appender(Math.max(slab, 1)); // force initialisation of the appender, will create the first slab, index = 1
+        this.manifest = new ChronicleManifest(new File(config.storageDirectory, config.name + ".manifest"),
+                TimeUnit.MILLISECONDS.toNanos(config.manifestLockTimeoutMillis), config.breakStaleManifestLock);
+        lockManifest(); // other processes may be initialising the same directory
+        try {
+            if (manifest.lastSlab() == 0) {
+                // a new queue, or one written before the manifest existed, list the directory once
+                appender(Math.max(lastSlabIndex(), 1)); // will create the first slab, index = 1
+                manifest.slabs(firstSlabIndex(), cachedAppenderSlabIndex);
+            } else {
+                appender(manifest.lastSlab());
+            }
+            if (newPositionFile) {
+                this.position.set(ChroniclePosition.position(manifest.firstSlab(), -1));
+            }
+        } finally {
+            unlockManifest();
+        }
+        this.weightEstimator = config.weightEstimatePercentile > 0
+                ? new WeightEstimator(config.weightEstimatePercentile, config.messageCapacity)
+                : null;
+        scratch = ThreadLocal.withInitial(() -> new ByteBufferBytes(ByteBuffer.allocateDirect(config.messageCapacity)));
+
+        File countersFile = new File(config.storageDirectory, config.name + ".counters");
+        boolean newCountersFile = !countersFile.exists();
+        this.counters = new ChronicleCounters(countersFile);
+        if (newCountersFile) {
+            countExistingEntries();
+        }
+    }
 
-        if (newPositionFile) {
-            this.position.slab(firstSlabIndex());
-            this.position.index(-1);
+    /**
+     * A queue written before the counters existed, count it the slow way once. The bytes are seeded
+     * from the stored size of the entries, so that remainingCapacity's average weight holds for them.
+     */
+    private void countExistingEntries() {
+        long count = 0;
+        long bytes = 0;
+        int slab = position.slab();
+        ExcerptTailer tailer = chronicleTailer(slab);
+        try {
+            toPosition(position, tailer);
+            while (true) {
+                if (tailer.nextIndex()) {
+                    bytes += tailer.remaining();
+                    if (!config.chunkedMessages || tailer.readByte() <= FIRST_CHUNK) {
+                        count++; // a whole entry or the first chunk of one
+                    }
+                } else if (slab == appenderSlab()) {
+                    break;
+                } else {
+                    release(tailer);
+                    tailer = chronicleTailer(++slab);
+                    tailer.toStart();
+                }
+            }
+        } finally {
+            release(tailer);
         }
-        numberOfSlabs = lastSlabIndex() - firstSlabIndex() + 1;
+        counters.reset(count, bytes);
     }
 
     public static <E> ChronicleBlockingQueue.Builder<E> builder(File storageDirectory) {
@@ -69,16 +206,12 @@ public class ChronicleBlockingQueue<E> implements BlockingQueue<E>, AutoCloseabl
 
     @Override
     public int size() {
-        int size = 0;
-        for (E e : this) {
-            size++;
-        }
-        return size;
+        return (int) Math.min(counters.size(), Integer.MAX_VALUE);
     }
 
     @Override
     public boolean isEmpty() {
-        return size() == 0;
+        return counters.size() == 0;
     }
 
     @Override
@@ -109,16 +242,155 @@ public class ChronicleBlockingQueue<E> implements BlockingQueue<E>, AutoCloseabl
         if (maxElements <= 0)
             return 0;
 
-        int count;
-        for (count = 0; count < maxElements; count ++) {
-            E val = this.poll();
-            if (val == null) {
-                break; // no more elements left
+        return competingConsumers ? drainCompeting(c, maxElements) : drainSequentially(c, maxElements);
+    }
+
+    /**
+     * Single consumer drainTo. Rather than polling each element, which seeks the tailer and writes
+     * the position every time, the tailer walks forward over the run of entries and the position
+     * is published once per slab, and once at the end. Elements already added to the collection
+     * are published even if a later one fails to deserialize, or the collection refuses it.
+     */
+    private int drainSequentially(Collection<? super E> c, int maxElements) {
+        long start = position.get();
+        int slab = ChroniclePosition.slab(start);
+        int index = ChroniclePosition.index(start);
+        ExcerptTailer tailer = cachedTailerForSlab(slab);
+        if (start != cachedTailerPosition) {
+            toPosition(slab, index, tailer);
+        }
+        cachedTailerPosition = NOT_SET;
+
+        int drained = 0;
+        int unpublished = 0;
+        boolean positioned = true; // at slab and index, see cachedTailerPosition
+        try {
+            while (drained < maxElements) {
+                int appenderSlab = appenderSlab(); // read before the tailer, see pollCompeting
+                positioned = false;
+                if (tailer.nextIndex()) {
+                    Bytes bytes = tailer;
+                    int entrySlab = slab;
+                    if (startsChunkedEntry(tailer)) {
+                        ChunkedEntry entry = readChunked(slab, tailer, this::cachedTailerForSlab);
+                        if (entry == null) {
+                            break; // the rest of the chunks are still being appended
+                        }
+                        bytes = entry.bytes;
+                        tailer = entry.tailer;
+                        entrySlab = entry.slab;
+                    }
+                    E value = deserialise(bytes);
+                    c.add(value); // before moving the index, an element the collection refuses stays queued
+                    index = (int) tailer.index();
+                    positioned = true;
+                    drained++;
+                    unpublished++;
+                    if (entrySlab != slab) {
+                        // the chunks spanned slabs, which can only be deleted once published
+                        int spanned = slab;
+                        slab = entrySlab;
+                        publish(slab, index, unpublished);
+                        unpublished = 0;
+                        for (; spanned < slab; spanned++) {
+                            deleteSlab(spanned);
+                        }
+                    }
+                } else if (slab == appenderSlab) {
+                    break;
+                } else {
+                    index = -1;
+                    publish(slab + 1, index, unpublished);
+                    unpublished = 0;
+                    tailer = cachedTailerForSlab(slab + 1);
+                    tailer.toStart();
+                    positioned = true;
+                    deleteSlab(slab++);
+                }
+            }
+        } finally {
+            if (unpublished > 0) {
+                publish(slab, index, unpublished);
+            }
+            if (positioned) {
+                cachedTailerPosition = ChroniclePosition.position(slab, index);
             }
-            c.add(val);
         }
+        return drained;
+    }
 
-        return count;
+    private void publish(int slab, int index, int consumed) {
+        position.set(ChroniclePosition.position(slab, index));
+        counters.dequeue(consumed);
+    }
+
+    /**
+     * Competing consumer drainTo. A run of entries is read speculatively and claimed with a single
+     * compare and swap of the position, only then are they added to the collection. A run ends at
+     * the end of a slab or at a chunked entry, which is claimed on its own, and is at most
+     * DRAIN_BATCH entries. Longer runs would only be lost, and deserialised again, when another
+     * consumer moves the position first.
+     */
+    private int drainCompeting(Collection<? super E> c, int maxElements) {
+        List<E> run = new ArrayList<>();
+        int drained = 0;
+        while (drained < maxElements) {
+            long current = position.get();
+            int slab = ChroniclePosition.slab(current);
+            int appenderSlab = appenderSlab();
+            ExcerptTailer tailer = consumerTailer(current, slab);
+            if (tailer == null) {
+                continue; // the position moved on, the slab may have been deleted
+            }
+            toPosition(slab, ChroniclePosition.index(current), tailer);
+
+            run.clear();
+            long claimed = current;
+            boolean incomplete = false;
+            try {
+                while (run.size() < DRAIN_BATCH && drained + run.size() < maxElements && tailer.nextIndex()) {
+                    if (startsChunkedEntry(tailer)) {
+                        if (run.isEmpty()) {
+                            ChunkedEntry entry = readChunked(slab, tailer, next -> consumerTailer(current, next));
+                            if (entry == null) {
+                                incomplete = true;
+                            } else {
+                                run.add(deserialise(entry.bytes));
+                                tailer = entry.tailer;
+                                claimed = ChroniclePosition.position(entry.slab, (int) tailer.index());
+                            }
+                        }
+                        break;
+                    }
+                    run.add(deserialise(tailer));
+                    claimed = ChroniclePosition.position(slab, (int) tailer.index());
+                }
+            } catch (RuntimeException e) {
+                if (position.get() == current) {
+                    throw e;
+                }
+                continue; // the slab was deleted, and maybe reused, while reading it
+            }
+            tailer.finish();
+
+            if (!run.isEmpty()) {
+                if (claimEntries(current, claimed, run.size())) {
+                    c.addAll(run);
+                    drained += run.size();
+                }
+                continue; // otherwise another consumer claimed some of them first
+            }
+            if (incomplete && position.get() != current) {
+                continue; // the chunks were claimed by another consumer meanwhile
+            }
+            if (incomplete || slab == appenderSlab) {
+                break;
+            }
+            if (position.compareAndSwap(current, ChroniclePosition.position(slab + 1, -1))) {
+                deleteSlab(slab);
+            }
+        }
+        return drained;
     }
 
     @NotNull
@@ -152,9 +424,21 @@ public class ChronicleBlockingQueue<E> implements BlockingQueue<E>, AutoCloseabl
         return true;
     }
 
+    /**
+     * Appends the elements with {@link #offerBatch(Collection)}.
+     *
+     * @throws IllegalStateException if the queue fills before all of the elements are appended,
+     *         those before it remain in the queue
+     */
     @Override
     public boolean addAll(Collection<? extends E> c) {
-        c.forEach(this::add);
+        if (c == this)
+            throw new IllegalArgumentException();
+
+        int accepted = offerBatch(c);
+        if (accepted < c.size()) {
+            throw new IllegalStateException("queue full after " + accepted + " of " + c.size() + " elements");
+        }
         return true;
     }
 
@@ -186,106 +470,585 @@ public class ChronicleBlockingQueue<E> implements BlockingQueue<E>, AutoCloseabl
             throw new NullPointerException("null elements are not permitted");
         }
 
+        if (config.chunkedMessages) {
+            return offerChunked(e);
+        }
+        if (config.multiProducer || config.multiProcess) {
+            return offerConcurrently(e);
+        }
+
         BytesSerializer<E> serializer = config.serializer();
 
         int weight = serializer.weigh(e);
         if (weight == -1) {
-            weight = config.messageCapacity();
+            int estimate = weightEstimator != null ? weightEstimator.estimate() : -1;
+            return estimate == -1 ? offerExactly(e) : offerEstimated(e, estimate);
+        }
+
+        ExcerptAppender appender = startExcerpt(weight);
+        if (appender == null) {
+            return false;
+        }
+        serializer.serialize(e, appender);
+        long written = appender.position();
+        appender.finish();
+        counters.enqueue(1, written);
+        waitStrategy.signalAll();
+        return true;
+    }
+
+    /**
+     * Variant of offer for elements of unknown weight. Rather than reserving messageCapacity bytes in
+     * the slab, which rolls over to a new slab prematurely, the element is serialized into a thread
+     * local scratch buffer so that exactly its size is reserved.
+     */
+    private boolean offerExactly(E e) {
+        Bytes buffer = scratch.get();
+        buffer.clear();
+        config.serializer().serialize(e, buffer);
+        return appendExactly(buffer, buffer.position());
+    }
+
+    private boolean appendExactly(Bytes buffer, long length) {
+        ExcerptAppender appender = startExcerpt((int) length);
+        if (appender == null) {
+            return false;
+        }
+        appender.write(buffer, 0L, length);
+        appender.finish();
+        reservationBytesSaved.add(config.messageCapacity - length);
+        if (weightEstimator != null) {
+            weightEstimator.record(length);
+        }
+        counters.enqueue(1, length);
+        waitStrategy.signalAll();
+        return true;
+    }
+
+    /**
+     * Variant of offer for elements of unknown weight once the weightEstimator has learnt their
+     * typical size. The element is serialized directly into an excerpt of the estimated weight,
+     * falling back to appending it exactly if it turns out to be larger, see appendOverflowed.
+     */
+    private boolean offerEstimated(E e, int estimate) {
+        ExcerptAppender appender = startExcerpt(estimate);
+        if (appender == null) {
+            return false;
+        }
+        try {
+            config.serializer().serialize(e, appender);
+        } catch (RuntimeException failed) {
+            return appendOverflowed(e, appender, failed);
+        }
+        long written = appender.position();
+        appender.finish();
+        reservationBytesSaved.add(config.messageCapacity - written);
+        weightEstimator.record(written);
+        counters.enqueue(1, written);
+        waitStrategy.signalAll();
+        return true;
+    }
+
+    /**
+     * Recover from serializing into an excerpt of the estimated weight having failed. Neither the
+     * exception nor the appender's position tell whether the element didn't fit, a bulk write being
+     * rejected before any of its bytes are written, so the element is serialized into the scratch
+     * buffer and compared with the space the excerpt had. Only if it needs more is the excerpt
+     * discarded and the element appended exactly. Otherwise the serializer failed by itself and its
+     * exception is rethrown, the excerpt being left as offer leaves one for an element of known
+     * weight.
+     */
+    private boolean appendOverflowed(E e, ExcerptAppender appender, RuntimeException failed) {
+        long capacity = appender.position() + appender.remaining();
+        Bytes buffer = scratch.get();
+        buffer.clear();
+        try {
+            config.serializer().serialize(e, buffer);
+        } catch (RuntimeException again) {
+            throw failed;
+        }
+        long length = buffer.position();
+        if (length <= capacity) {
+            throw failed;
+        }
+        discardUnfinishedExcerpt();
+        estimateOverflows.increment();
+        return appendExactly(buffer, length);
+    }
+
+    /**
+     * Discard a started but unfinished excerpt by reopening the appender, which starts after the
+     * last finished excerpt recorded in the index, as when another process has appended. Its
+     * partial bytes are overwritten by the next excerpt rather than becoming part of it.
+     */
+    private void discardUnfinishedExcerpt() {
+        int slab = cachedAppenderSlabIndex;
+        release(cachedAppender);
+        slabCache.evict(slab);
+        cachedAppender = chronicleAppender(slab);
+    }
+
+    /**
+     * @return number of elements that didn't fit the estimated weight, see weightEstimatePercentile
+     */
+    public long estimateOverflows() {
+        return estimateOverflows.sum();
+    }
+
+    /**
+     * @return number of bytes offer has avoided reserving in the slabs by serializing elements of
+     *         unknown weight before appending them, rather than reserving messageCapacity for each
+     */
+    public long reservationBytesSaved() {
+        return reservationBytesSaved.sum();
+    }
+
+    /**
+     * Multi producer variant of offer. The element is serialized into a thread local scratch buffer
+     * outside of the append lock, which is then held only to copy the exact number of bytes into the
+     * slab. The underlying chronicle only supports a single appender, so appends themselves can't
+     * proceed concurrently. In multiProcess mode the lock also excludes other processes.
+     */
+    private boolean offerConcurrently(E e) {
+        Bytes buffer = scratch.get();
+        buffer.clear();
+        config.serializer().serialize(e, buffer);
+        long length = buffer.position();
+
+        lockAppender();
+        try {
+            ExcerptAppender appender = startExcerpt((int) length);
+            if (appender == null) {
+                return false;
+            }
+            appender.write(buffer, 0L, length);
+            appender.finish();
+        } finally {
+            unlockAppender();
+        }
+        counters.enqueue(1, length);
+        waitStrategy.signalAll();
+        return true;
+    }
+
+    /**
+     * Append the elements in order, stopping at the first that doesn't fit. The append lock is
+     * taken, and the counters and waiting consumers updated, once per run of up to APPEND_BATCH
+     * elements rather than per element, so elements of unknown weight are serialized while holding
+     * the lock. Bounding the runs lets other producers, and in multiProcess other processes, append
+     * between them however large the collection, and keeps each hold of the manifest lock well
+     * short of manifestLockTimeoutMillis.
+     *
+     * @return number of elements appended, from the start of the collection
+     * @throws NullPointerException if an element is null, those before it remain in the queue
+     */
+    public int offerBatch(Collection<? extends E> elements) {
+        boolean concurrent = config.multiProducer || config.multiProcess;
+        Iterator<? extends E> iterator = elements.iterator();
+        int accepted = 0;
+        boolean full = false;
+        while (!full && iterator.hasNext()) {
+            int appended = 0;
+            long appendedBytes = 0;
+            if (concurrent) {
+                lockAppender();
+            }
+            try {
+                while (appended < APPEND_BATCH && iterator.hasNext()) {
+                    E e = iterator.next();
+                    if (e == null) {
+                        throw new NullPointerException("null elements are not permitted");
+                    }
+                    long written = appendElement(e);
+                    if (written == -1) {
+                        full = true;
+                        break;
+                    }
+                    appended++;
+                    appendedBytes += written;
+                }
+            } finally {
+                if (concurrent) {
+                    unlockAppender();
+                }
+                if (appended > 0) {
+                    counters.enqueue(appended, appendedBytes);
+                    waitStrategy.signalAll();
+                }
+            }
+            accepted += appended;
+        }
+        return accepted;
+    }
+
+    /**
+     * Append a single element of a batch, the append lock being held if need be.
+     *
+     * @return number of bytes written or -1 if the queue is full
+     */
+    private long appendElement(E e) {
+        BytesSerializer<E> serializer = config.serializer();
+        int weight = config.chunkedMessages ? -1 : serializer.weigh(e);
+        if (weight != -1) {
+            ExcerptAppender appender = startExcerpt(weight);
+            if (appender == null) {
+                return -1;
+            }
+            serializer.serialize(e, appender);
+            long written = appender.position();
+            appender.finish();
+            return written;
+        }
+
+        Bytes buffer;
+        if (config.chunkedMessages) {
+            buffer = serializeGrowing(e);
+        } else {
+            buffer = scratch.get();
+            buffer.clear();
+            serializer.serialize(e, buffer);
+        }
+        long length = buffer.position();
+        if (!appendSerialized(buffer, length)) {
+            return -1;
+        }
+        if (!config.chunkedMessages) {
+            reservationBytesSaved.add(config.messageCapacity - length);
+        }
+        return length;
+    }
+
+    /**
+     * Append an element already serialized into the buffer, with chunkedMessages adding its header
+     * or splitting it into chunks if it doesn't fit messageCapacity.
+     *
+     * @return false if the queue is full
+     */
+    private boolean appendSerialized(Bytes buffer, long length) {
+        if (config.chunkedMessages && length >= config.messageCapacity) {
+            return appendChunks(buffer, length);
+        }
+        ExcerptAppender appender = startExcerpt(config.chunkedMessages ? (int) length + 1 : (int) length);
+        if (appender == null) {
+            return false;
+        }
+        if (config.chunkedMessages) {
+            appender.writeByte(WHOLE_ENTRY);
         }
+        appender.write(buffer, 0L, length);
+        appender.finish();
+        return true;
+    }
+
+    /**
+     * Variant of offer with chunkedMessages. The element is serialized into the scratch buffer, or a
+     * larger temporary one if it doesn't fit, then appended whole if it fits messageCapacity or
+     * otherwise split into chunks across consecutive excerpts. All the chunks are appended under
+     * the append lock, so they are never interleaved with another producer's entries.
+     */
+    private boolean offerChunked(E e) {
+        Bytes buffer = serializeGrowing(e);
+        long length = buffer.position();
+
+        boolean concurrent = config.multiProducer || config.multiProcess;
+        if (concurrent) {
+            lockAppender();
+        }
+        try {
+            if (!appendSerialized(buffer, length)) {
+                return false;
+            }
+        } finally {
+            if (concurrent) {
+                unlockAppender();
+            }
+        }
+        counters.enqueue(1, length);
+        waitStrategy.signalAll();
+        return true;
+    }
+
+    /**
+     * Serialize the element, growing beyond the messageCapacity scratch buffer if need be. Larger
+     * buffers are not kept, they are only needed for the occasional large element.
+     */
+    private Bytes serializeGrowing(E e) {
+        BytesSerializer<E> serializer = config.serializer();
+        int weight = serializer.weigh(e);
+        Bytes buffer = weight > config.messageCapacity
+                ? new ByteBufferBytes(ByteBuffer.allocate(weight))
+                : scratch.get();
+        while (true) {
+            buffer.clear();
+            try {
+                serializer.serialize(e, buffer);
+                return buffer;
+            } catch (IllegalStateException | IndexOutOfBoundsException | BufferOverflowException overflow) {
+                if (!rejectedByBuffer(e, buffer)) {
+                    throw overflow;
+                }
+                if (buffer.capacity() >= MAX_CHUNKED_LENGTH) {
+                    throw new IllegalArgumentException("element larger than " + MAX_CHUNKED_LENGTH + " bytes", overflow);
+                }
+                buffer = new ByteBufferBytes(ByteBuffer.allocate((int) Math.min(buffer.capacity() * 2, MAX_CHUNKED_LENGTH)));
+            }
+        }
+    }
+
+    /**
+     * Tells a write past the end of the buffer apart from the serializer failing for some other
+     * reason with the same exception type, once serializing the element into the buffer has
+     * thrown. Bulk writes are rejected before any of their bytes are written, so the buffer's
+     * position doesn't show whether its capacity was reached. Instead the element is serialized
+     * again through a proxy noting whether any of the buffer's own methods threw, which costs a
+     * reflective call per write but only on this rare path.
+     *
+     * @return true if the buffer rejected a write, false if the serializer failed by itself
+     */
+    private boolean rejectedByBuffer(E e, Bytes buffer) {
+        boolean[] rejected = new boolean[1];
+        Bytes[] probe = new Bytes[1];
+        probe[0] = (Bytes) Proxy.newProxyInstance(Bytes.class.getClassLoader(), new Class<?>[]{Bytes.class},
+                (proxy, method, args) -> {
+                    Object result;
+                    try {
+                        result = method.invoke(buffer, args);
+                    } catch (InvocationTargetException thrown) {
+                        rejected[0] = true;
+                        throw thrown.getCause();
+                    }
+                    return result == buffer ? probe[0] : result; // keep chained writes on the probe
+                });
+        buffer.clear();
+        try {
+            config.serializer().serialize(e, probe[0]);
+        } catch (RuntimeException ignored) {
+            // the first attempt's exception is the one reported
+        }
+        return rejected[0];
+    }
+
+    /**
+     * Append an entry larger than messageCapacity as a first chunk holding its length, followed by
+     * as many chunks as it takes, rolling over to new slabs as they fill. Consumers don't move past
+     * the first chunk until they have read the last.
+     *
+     * @return false if the queue doesn't have room for all of the chunks
+     */
+    private boolean appendChunks(Bytes buffer, long length) {
+        long chunks = (length - (config.messageCapacity - FIRST_CHUNK_HEADER)) / (config.messageCapacity - 1) + 2;
+        long chunksPerSlab = Math.max(1, config.slabBlockSize / config.messageCapacity - 1);
+        long slabsNeeded = (chunks + chunksPerSlab - 1) / chunksPerSlab;
+        if (slabsNeeded >= config.maxNumberOfSlabs) {
+            throw new IllegalArgumentException("element of " + length + " bytes can never fit in "
+                    + config.maxNumberOfSlabs + " slabs");
+        }
+        if (slabsNeeded > (long) config.maxNumberOfSlabs - numberOfSlabs()) {
+            return false;
+        }
+
+        long offset = 0;
+        while (offset < length) {
+            int header = offset == 0 ? FIRST_CHUNK_HEADER : 1;
+            long size = Math.min(config.messageCapacity - header, length - offset);
+            ExcerptAppender appender = startExcerpt((int) size + header);
+            if (appender == null) {
+                // can't happen while the capacity check above holds, consumers only free slabs
+                throw new IllegalStateException("queue filled while appending chunk at " + offset + " of " + length);
+            }
+            if (offset == 0) {
+                appender.writeByte(FIRST_CHUNK);
+                appender.writeLong(length);
+            } else {
+                appender.writeByte(offset + size == length ? LAST_CHUNK : NEXT_CHUNK);
+            }
+            appender.write(buffer, offset, size);
+            appender.finish();
+            offset += size;
+        }
+        return true;
+    }
+
+    /**
+     * Garbage free variant of offer, the writer writes the serialized form of an element directly
+     * into the slab. Only the bytes actually written are used, weight just needs to be an upper
+     * bound so that the slab is rolled over if there isn't room.
+     *
+     * @param weight upper limit of the bytes the writer will write, at most messageCapacity, less
+     *               one with chunkedMessages
+     * @return true if the element was appended, false if the queue is full
+     */
+    public boolean offerBytes(int weight, BytesWriter writer) {
+        if (weight <= 0 || weight > maxBytesWeight()) {
+            throw new IllegalArgumentException("weight " + weight + " must be between 1 and " + maxBytesWeight());
+        }
+        boolean concurrent = config.multiProducer || config.multiProcess;
+        if (concurrent) {
+            lockAppender();
+        }
+        long written;
+        try {
+            ExcerptAppender appender = startExcerpt(config.chunkedMessages ? weight + 1 : weight);
+            if (appender == null) {
+                return false;
+            }
+            if (config.chunkedMessages) {
+                appender.writeByte(WHOLE_ENTRY);
+            }
+            long start = appender.position();
+            writer.write(appender);
+            written = appender.position() - start;
+            appender.finish();
+        } finally {
+            if (concurrent) {
+                unlockAppender();
+            }
+        }
+        counters.enqueue(1, written);
+        waitStrategy.signalAll();
+        return true;
+    }
+
+    /**
+     * offerBytes with the largest weight allowed, for writers that can't bound their size.
+     */
+    public boolean offerBytes(BytesWriter writer) {
+        return offerBytes(maxBytesWeight(), writer);
+    }
+
+    private int maxBytesWeight() {
+        return config.chunkedMessages ? config.messageCapacity - 1 : config.messageCapacity;
+    }
+
+    private void lockAppender() {
+        appendLock.lock();
+        if (config.multiProcess) {
+            try {
+                manifest.lock(instanceId);
+            } catch (RuntimeException e) {
+                appendLock.unlock();
+                throw e;
+            }
+            if (manifest.lastAppender() != instanceId || manifest.lastSlab() != cachedAppenderSlabIndex) {
+                // another process has appended since we did, our appender would overwrite its
+                // entries so reopen it, which finds the current end of the slab
+                release(cachedAppender);
+                slabCache.evict(manifest.lastSlab());
+                cachedAppender = chronicleAppender(manifest.lastSlab());
+                cachedAppenderSlabIndex = manifest.lastSlab();
+                preallocate(cachedAppenderSlabIndex + 1);
+            }
+        }
+    }
 
-        ExcerptAppender appender;
+    private void unlockAppender() {
+        try {
+            if (config.multiProcess) {
+                if (manifest.lockHolder() == instanceId) {
+                    // not if another process has broken the lock, it may have appended since
+                    manifest.lastAppender(instanceId);
+                }
+                manifest.unlock(instanceId);
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
 
-        appender = cachedAppender();
+    /**
+     * The manifest lock is only needed when other processes may be appending.
+     */
+    private void lockManifest() {
+        if (config.multiProcess) {
+            manifest.lock(instanceId);
+        }
+    }
+
+    private void unlockManifest() {
+        if (config.multiProcess) {
+            manifest.unlock(instanceId);
+        }
+    }
+
+    /**
+     * Start an excerpt of the given weight, rolling to the next slab if the current one is full.
+     *
+     * @return the appender positioned at the start of the new excerpt or null if the queue is full
+     */
+    private ExcerptAppender startExcerpt(int weight) {
+        long slabRange = manifest.slabRange(); // before trying, a slab deleted since must not be missed
+        if (weight >= fullWeight && slabRange == fullSlabRange) {
+            // still full, space is only freed by deleting a slab and the current one can't grow
+            return null;
+        }
+        ExcerptAppender appender = cachedAppender();
         try {
             appender.startExcerpt(weight);
         } catch (IllegalStateException ignored) {
-            if (numberOfSlabs < config.maxNumberOfSlabs) {
+            if (numberOfSlabs() < config.maxNumberOfSlabs) {
                 appender = nextAppender();
                 appender.startExcerpt(weight);
             } else {
                 // we're over capacity
-                return false;
+                fullWeight = weight;
+                fullSlabRange = slabRange;
+                return null;
             }
         }
-        serializer.serialize(e, appender);
-        appender.finish();
-        return true;
+        return appender;
     }
 
     @Override
     public void put(E e) throws InterruptedException {
-        Thread currentThread = null;
-        // todo either replace spin with lock/notify or improve spin
-        while (!offer(e)) {
-            if (currentThread == null) {
-                currentThread = Thread.currentThread();
-            }
-            if (currentThread.isInterrupted()) {
-                throw new InterruptedException();
-            }
+        if (offer(e)) {
+            return;
         }
+        waitStrategy.waitFor(() -> offer(e) ? Boolean.TRUE : null, WaitStrategy.NO_DEADLINE);
     }
 
     @Override
     public boolean offer(E e, long timeout, @NotNull TimeUnit unit) throws InterruptedException {
-        long start = System.nanoTime();
-        long deadline = start + NANOSECONDS.convert(timeout, unit);
-        Thread currentThread = null;
-        // todo either replace spin with lock/notify or improve spin
-        while (!offer(e)) {
-            if (currentThread == null) {
-                currentThread = Thread.currentThread();
-            }
-            if (currentThread.isInterrupted()) {
-                throw new InterruptedException();
-            }
-            if (System.nanoTime() > deadline) {
-                return false;
-            }
+        if (offer(e)) {
+            return true;
         }
-        return true;
+        long deadline = WaitStrategy.deadline(timeout, unit);
+        return waitStrategy.waitFor(() -> offer(e) ? Boolean.TRUE : null, deadline) != null;
     }
 
     @Override
     public E take() throws InterruptedException {
-        Thread currentThread = null;
-        // todo either replace spin with lock/notify or improve spin
-        E result;
-        while ((result = poll()) == null) {
-            if (currentThread == null) {
-                currentThread = Thread.currentThread();
-            }
-            if (currentThread.isInterrupted()) {
-                throw new InterruptedException();
-            }
+        E result = poll();
+        if (result != null) {
+            return result;
         }
-        return result;
+        return waitStrategy.waitFor(this::poll, WaitStrategy.NO_DEADLINE);
     }
 
     @Override
     public E poll(long timeout, @NotNull TimeUnit unit) throws InterruptedException {
-        long start = System.nanoTime();
-        long deadline = start + NANOSECONDS.convert(timeout, unit);
-        Thread currentThread = null;
-        // todo either replace spin with lock/notify or improve spin
-        E result;
-        while ((result = poll()) == null) {
-            if (currentThread == null) {
-                currentThread = Thread.currentThread();
-            }
-            if (currentThread.isInterrupted()) {
-                throw new InterruptedException();
-            }
-            if (System.nanoTime() > deadline) {
-                return null;
-            }
+        E result = poll();
+        if (result != null) {
+            return result;
         }
-        return result;
+        return waitStrategy.waitFor(this::poll, WaitStrategy.deadline(timeout, unit));
     }
 
+    /**
+     * Estimate of the number of additional elements the queue can accept, based on the number of
+     * unallocated slabs and the average size of the elements written so far. Space remaining in
+     * the current slab is not counted, so this errs on the low side.
+     */
     @Override
     public int remainingCapacity() {
-        return Integer.MAX_VALUE;
+        if (config.maxNumberOfSlabs == Integer.MAX_VALUE) {
+            return Integer.MAX_VALUE;
+        }
+        long enqueuedBytes = counters.enqueuedBytes();
+        long averageWeight = enqueuedBytes == 0
+                ? config.messageCapacity
+                : Math.max(1L, enqueuedBytes / counters.enqueued());
+        long freeBytes = (long) (config.maxNumberOfSlabs - numberOfSlabs()) * config.slabBlockSize;
+        return (int) Math.min(freeBytes / averageWeight, Integer.MAX_VALUE);
     }
 
     @Override
@@ -297,37 +1060,225 @@ public class ChronicleBlockingQueue<E> implements BlockingQueue<E>, AutoCloseabl
 
     @Override
     public E poll() {
-        int slab = position.slab();
+        return poll(elementReader, false);
+    }
+
+    /**
+     * Garbage free variant of poll, handing the next element's bytes to the consumer in place rather
+     * than deserializing it. The position is only advanced once the consumer returns, so an element
+     * whose consumer throws is delivered again. With competing consumers the element is instead
+     * claimed before the consumer is called, so it's delivered to exactly one of them.
+     *
+     * @return true if an element was consumed, false if the queue is empty
+     */
+    public boolean poll(BytesConsumer consumer) {
+        ConsumerReader reader = consumerReaders.get(); // rather than allocating a capturing lambda
+        reader.consumer = consumer;
+        try {
+            return poll(reader, true) != null;
+        } finally {
+            reader.consumer = null;
+        }
+    }
+
+    private static final class ConsumerReader implements Function<Bytes, Boolean> {
+        private BytesConsumer consumer;
+
+        @Override
+        public Boolean apply(Bytes bytes) {
+            consumer.accept(bytes);
+            return Boolean.TRUE;
+        }
+    }
+
+    /**
+     * Variant of {@link #poll(BytesConsumer)} that waits for an element to become available.
+     */
+    public void take(BytesConsumer consumer) throws InterruptedException {
+        if (poll(consumer)) {
+            return;
+        }
+        waitStrategy.waitFor(() -> poll(consumer) ? Boolean.TRUE : null, WaitStrategy.NO_DEADLINE);
+    }
+
+    /**
+     * @param reader reads the next entry from the positioned tailer, must not return null
+     * @param claimBeforeReading with competing consumers claim the entry before it's read rather
+     *                           than reading it speculatively
+     * @return value returned by reader or null if the queue is empty
+     */
+    private <T> T poll(Function<Bytes, T> reader, boolean claimBeforeReading) {
+        if (competingConsumers) {
+            return pollCompeting(reader, claimBeforeReading);
+        }
+        long current = position.get();
+        int slab = ChroniclePosition.slab(current);
+        int appenderSlab = appenderSlab(); // read before the tailer, see pollCompeting
         ExcerptTailer tailer = cachedTailerForSlab(slab);
-        toPosition(position, tailer);
+        if (current != cachedTailerPosition) {
+            toPosition(slab, ChroniclePosition.index(current), tailer);
+        }
+        cachedTailerPosition = NOT_SET; // until an entry has been read
 
-        E value = readAndUpdate(tailer, position);
-        if (value != null)
-            return value;
+        if (tailer.nextIndex())
+            return readAndTrack(tailer, slab, reader); // null if a chunked entry is still being appended
 
         // maybe the next slab has some?
-        if (slab == cachedAppenderSlabIndex) {
+        if (slab == appenderSlab) {
             // ie we're reading the same thing that is being written
             return null; // there is nothing more stop looking
         }
 
-        int nextSlab = position.incrementSlabAndResetIndex();
+        // before the first entry, the slab may be empty as the appender publishes it before appending
+        int nextSlab = slab + 1;
+        position.set(ChroniclePosition.position(nextSlab, -1));
         tailer = cachedTailerForSlab(nextSlab); // will close the open tailer so we don't have to worry about it
         tailer.toStart();
         deleteSlab(slab);
-        return readAndUpdate(tailer, position);
+        return tailer.nextIndex() ? readAndTrack(tailer, nextSlab, reader) : null;
+    }
+
+    private <T> T readAndTrack(ExcerptTailer tailer, int slab, Function<Bytes, T> reader) {
+        T value = readAndUpdate(tailer, slab, reader);
+        if (value != null) {
+            cachedTailerPosition = position.get(); // the tailer is sitting at the entry just read
+        }
+        return value;
+    }
+
+    /**
+     * Competing consumer variant of poll. The next entry is read speculatively and then claimed by
+     * a compare and swap of the position, so any number of threads or processes may poll the same
+     * queue. Only the consumer that moves the position past a slab deletes it.
+     */
+    private <T> T pollCompeting(Function<Bytes, T> reader, boolean claimBeforeReading) {
+        while (true) {
+            long current = position.get();
+            int slab = ChroniclePosition.slab(current);
+            int index = ChroniclePosition.index(current);
+            // the appender slab must be read before looking for the next entry. Once the appender has
+            // moved on the slab is complete, but only entries written before the move are
+            // guaranteed to be visible.
+            int appenderSlab = appenderSlab();
+
+            ExcerptTailer tailer = consumerTailer(current, slab);
+            if (tailer == null) {
+                continue; // the position moved on, the slab may have been deleted
+            }
+            toPosition(slab, index, tailer);
+            if (tailer.nextIndex()) {
+                Bytes bytes = tailer;
+                int claimedSlab = slab;
+                if (startsChunkedEntry(tailer)) {
+                    ChunkedEntry entry;
+                    try {
+                        entry = readChunked(slab, tailer, next -> consumerTailer(current, next));
+                    } catch (RuntimeException e) {
+                        if (position.get() == current) {
+                            throw e;
+                        }
+                        continue; // the slab was deleted, and maybe reused, while reading it
+                    }
+                    if (entry == null) {
+                        if (position.get() != current) {
+                            continue; // claimed by another consumer meanwhile
+                        }
+                        return null; // the rest of the chunks are still being appended
+                    }
+                    bytes = entry.bytes;
+                    tailer = entry.tailer;
+                    claimedSlab = entry.slab;
+                }
+                long claimed = ChroniclePosition.position(claimedSlab, (int) tailer.index());
+                if (claimBeforeReading) {
+                    if (!claimEntries(current, claimed, 1)) {
+                        tailer.finish();
+                        continue; // another consumer claimed it first
+                    }
+                    T value = reader.apply(bytes);
+                    tailer.finish();
+                    return value;
+                }
+                T value;
+                try {
+                    value = reader.apply(bytes);
+                } catch (RuntimeException e) {
+                    if (position.get() == current) {
+                        throw e;
+                    }
+                    continue; // the slab was deleted, and maybe reused, while reading it
+                }
+                tailer.finish();
+                if (claimEntries(current, claimed, 1)) {
+                    return value;
+                }
+                continue; // another consumer claimed it first
+            }
+
+            if (slab == appenderSlab) {
+                return null;
+            }
+            if (position.compareAndSwap(current, ChroniclePosition.position(slab + 1, -1))) {
+                deleteSlab(slab);
+            }
+        }
+    }
+
+    /**
+     * Claim the entries up to and including claimed for this consumer, deleting any slabs the
+     * chunks of the last one spanned.
+     */
+    private boolean claimEntries(long current, long claimed, int entries) {
+        if (!position.compareAndSwap(current, claimed)) {
+            return false;
+        }
+        counters.dequeue(entries);
+        for (int slab = ChroniclePosition.slab(current); slab < ChroniclePosition.slab(claimed); slab++) {
+            deleteSlab(slab);
+        }
+        return true;
     }
 
-    private synchronized void deleteSlab(int slab) { // synchronized to force visiblity of change of numberOfSlabs
+    private void deleteSlab(int slab) {
         File indexFile = new File(config.storageDirectory, slabName(slab) + ".index");
         File dataFile = new File(config.storageDirectory, slabName(slab) + ".data");
-        try {
-            Files.delete(indexFile.toPath());
-            Files.delete(dataFile.toPath());
-        } catch(IOException e) {
-            throw new RuntimeIOException(e);
+        slabCache.evict(slab);
+        // before the files go, so consumers that fell behind never open the slab again, see
+        // consumerTailer(long, int). The capacity is freed now rather than when the files are gone.
+        manifest.advanceFirstSlab(slab + 1);
+        if (slabReclaimer != null) {
+            slabReclaimer.reclaim(indexFile, dataFile);
+        } else {
+            try {
+                slabPool.release(indexFile, dataFile);
+            } catch(IOException e) {
+                throw new RuntimeIOException(e);
+            }
         }
-        numberOfSlabs -= 1;
+        waitStrategy.signalAll();
+    }
+
+    /**
+     * @return number of drained slabs waiting to be deleted in the background, always zero unless
+     *         maxPendingSlabDeletions is set
+     */
+    public int pendingSlabDeletions() {
+        return slabReclaimer != null ? slabReclaimer.pending() : 0;
+    }
+
+    /**
+     * @return number of drained slabs whose files have been deleted in the background, always zero
+     *         unless maxPendingSlabDeletions is set
+     */
+    public long reclaimedSlabs() {
+        return slabReclaimer != null ? slabReclaimer.reclaimed() : 0L;
+    }
+
+    /**
+     * @return number of drained slabs whose files could not be deleted in the background
+     */
+    public long failedSlabDeletions() {
+        return slabReclaimer != null ? slabReclaimer.failed() : 0L;
     }
 
     @Override
@@ -337,33 +1288,119 @@ public class ChronicleBlockingQueue<E> implements BlockingQueue<E>, AutoCloseabl
         return value;
     }
 
-    @Override
-    public E peek() {
-        int slab = position.slab();
-        ExcerptTailer tailer = cachedTailerForSlab(slab);
-        toPosition(position, tailer);
+    /**
+     * Two phase variant of poll for at least once processing. The next element is deserialized
+     * once and handed back in a {@link Claim}, the position only moving past it when the claim is
+     * committed. Unlike peek followed by poll, the element isn't deserialized twice.
+     *
+     * <p>Nothing is reserved: until the claim is committed the element is still returned by poll,
+     * peek and further claims. With competing consumers several consumers may claim the same
+     * element, only the first to commit consumes it.</p>
+     *
+     * @return claim on the next element or null if the queue is empty
+     */
+    public Claim claim() {
+        cachedTailerPosition = NOT_SET; // the cached tailer moves on without the position
+        while (true) {
+            long current = position.get();
+            int slab = ChroniclePosition.slab(current);
+            int appenderSlab = appenderSlab();
+            ExcerptTailer tailer = consumerTailer(current, slab);
+            if (tailer == null) {
+                continue; // the position moved on, the slab may have been deleted
+            }
+            toPosition(slab, ChroniclePosition.index(current), tailer);
+
+            if (!tailer.nextIndex()) {
+                if (slab == appenderSlab) {
+                    return null;
+                }
+                tailer = consumerTailer(current, ++slab);
+                if (tailer == null) {
+                    continue;
+                }
+                tailer.toStart();
+                if (!tailer.nextIndex()) {
+                    return null;
+                }
+            }
+            try {
+                Bytes bytes = tailer;
+                if (startsChunkedEntry(tailer)) {
+                    ChunkedEntry entry = readChunked(slab, tailer, next -> consumerTailer(current, next));
+                    if (entry == null) {
+                        if (position.get() != current) {
+                            continue; // consumed meanwhile
+                        }
+                        return null; // the rest of the chunks are still being appended
+                    }
+                    bytes = entry.bytes;
+                    tailer = entry.tailer;
+                    slab = entry.slab;
+                }
+                E element = deserialise(bytes);
+                return new Claim(element, current, ChroniclePosition.position(slab, (int) tailer.index()));
+            } catch (RuntimeException e) {
+                if (position.get() == current) {
+                    throw e;
+                }
+                // the slab was deleted, and maybe reused, while reading it
+            }
+        }
+    }
 
-        if (tailer.nextIndex()) {
-            return deserialise(tailer);
+    /**
+     * An element read by {@link #claim()}, consumed once committed.
+     */
+    public class Claim {
+        private final E element;
+        private final long from;
+        private final long to;
+
+        Claim(E element, long from, long to) {
+            this.element = element;
+            this.from = from;
+            this.to = to;
         }
 
-        // maybe the next slab has some?
-        if (slab == cachedAppenderSlabIndex) {
-            // ie we're reading the same thing that is being written
-            return null; // there is nothing more stop looking
+        public E element() {
+            return element;
         }
 
-        tailer = cachedTailerForSlab(slab + 1);
-        tailer.toStart();
-        if (tailer.nextIndex()) {
-            return deserialise(tailer);
+        /**
+         * Move the position past the element, deleting any slabs left behind.
+         *
+         * @return true if the element was consumed, false if it had already been consumed by poll,
+         *         another claim or a competing consumer
+         */
+        public boolean commit() {
+            return claimEntries(from, to, 1);
         }
-        return null;
+    }
+
+    @Override
+    public E peek() {
+        Claim claim = claim(); // left uncommitted
+        return claim != null ? claim.element() : null;
     }
 
     private ExcerptAppender nextAppender() {
-        numberOfSlabs += 1;
-        return appender(nextSlabIndex());
+        // in multiProcess mode the manifest lock is held, see lockAppender
+        int next = manifest.lastSlab() + 1;
+        ExcerptAppender appender = appender(next);
+        manifest.lastSlab(next); // only once the slab exists, consumers may move onto it
+        return appender;
+    }
+
+    private int numberOfSlabs() {
+        return manifest.numberOfSlabs();
+    }
+
+    /**
+     * @return index of the slab being appended to, consumers must not move past it
+     */
+    private int appenderSlab() {
+        return manifest.lastSlab();
     }
 
     private ExcerptAppender cachedAppender() {
@@ -375,11 +1412,62 @@ public class ChronicleBlockingQueue<E> implements BlockingQueue<E>, AutoCloseabl
             release(cachedAppender);
             cachedAppender = chronicleAppender(slabIndex);
             cachedAppenderSlabIndex = slabIndex;
+            preallocate(slabIndex + 1);
         }
 
         return cachedAppender;
     }
 
+    /**
+     * Start creating the given slab in the background, so that rolling over to it doesn't have to
+     * create and map its files.
+     */
+    private void preallocate(int slab) {
+        if (slabPreallocator == null || slab == preallocatedSlabIndex) {
+            return;
+        }
+        discardPreallocatedSlab();
+        preallocatedSlab = slabPreallocator.submit(() -> newChronicle(slab));
+        preallocatedSlabIndex = slab;
+    }
+
+    /**
+     * @return the preallocated chronicle for the slab, waiting for it if need be, otherwise a new one
+     */
+    private Chronicle preallocatedOrNewChronicle(int slab) {
+        if (slab != preallocatedSlabIndex) {
+            return newChronicle(slab);
+        }
+        Future<Chronicle> preallocated = preallocatedSlab;
+        preallocatedSlab = null;
+        preallocatedSlabIndex = NOT_SET;
+        try {
+            return Uninterruptibles.getUninterruptibly(preallocated);
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    /**
+     * Close the preallocated slab, when another process rolled over first or the queue is closing.
+     * Its files are left behind to be opened when the slab is reached.
+     */
+    private void discardPreallocatedSlab() {
+        if (preallocatedSlab == null) {
+            return;
+        }
+        try {
+            Uninterruptibles.getUninterruptibly(preallocatedSlab).close();
+        } catch (ExecutionException ignored) {
+            // failed to create, the slab will be created again when it is needed
+        } catch (IOException e) {
+            throw new RuntimeIOException(e);
+        } finally {
+            preallocatedSlab = null;
+            preallocatedSlabIndex = NOT_SET;
+        }
+    }
+
     private Chronicle chronicle(int slab) {
         try {
             return ChronicleQueueBuilder
@@ -394,24 +1482,32 @@ public class ChronicleBlockingQueue<E> implements BlockingQueue<E>, AutoCloseabl
         }
     }
 
-    private ExcerptAppender chronicleAppender(int slab) {
+    /**
+     * Chronicle for a slab about to be appended to, reusing a pooled data file if it doesn't exist yet.
+     */
+    private Chronicle newChronicle(int slab) {
         try {
-            return chronicle(slab).createAppender();
+            slabPool.acquire(new File(config.storageDirectory, slabName(slab) + ".data"));
         } catch (IOException e) {
             throw new RuntimeIOException(e);
         }
+        return chronicle(slab);
     }
 
-    private ExcerptTailer chronicleTailer(int slab) {
+    private ExcerptAppender chronicleAppender(int slab) {
         try {
-            return chronicle(slab).createTailer();
+            return slabCache.acquire(slab, () -> preallocatedOrNewChronicle(slab)).createAppender();
         } catch (IOException e) {
             throw new RuntimeIOException(e);
         }
     }
 
-    private int nextSlabIndex() {
-        return lastSlabIndex() + 1;
+    private ExcerptTailer chronicleTailer(int slab) {
+        try {
+            return slabCache.acquire(slab).createTailer();
+        } catch (IOException e) {
+            throw new RuntimeIOException(e);
+        }
     }
 
     private int lastSlabIndex() {
@@ -465,27 +1561,130 @@ public class ChronicleBlockingQueue<E> implements BlockingQueue<E>, AutoCloseabl
         cachedTailerSlabIndex = NOT_SET;
     }
 
-    private E readAndUpdate(ExcerptTailer tailer, ChroniclePosition position) {
-        if (tailer.nextIndex()) {
-            E value = deserialise(tailer);
+    /**
+     * Read the entry the tailer has moved to and advance the position past it.
+     *
+     * @return value returned by reader or null if the entry is chunked and still being appended
+     */
+    private <T> T readAndUpdate(ExcerptTailer tailer, int slab, Function<Bytes, T> reader) {
+        if (startsChunkedEntry(tailer)) {
+            ChunkedEntry entry = readChunked(slab, tailer, this::cachedTailerForSlab);
+            if (entry == null) {
+                return null;
+            }
+            T value = reader.apply(entry.bytes);
 
-            position.index((int) tailer.index());
+            position.set(ChroniclePosition.position(entry.slab, (int) entry.tailer.index()));
+            counters.dequeue(1);
+            for (int spanned = slab; spanned < entry.slab; spanned++) {
+                deleteSlab(spanned);
+            }
             return value;
         }
-        return null;
+        T value = reader.apply(tailer);
+
+        position.index((int) tailer.index());
+        counters.dequeue(1);
+        return value;
+    }
+
+    /**
+     * With chunkedMessages reads the header of the entry the tailer has moved to.
+     *
+     * @return true if the entry is the first chunk of a chunked entry
+     */
+    private boolean startsChunkedEntry(ExcerptTailer tailer) {
+        return config.chunkedMessages && tailer.readByte() == FIRST_CHUNK;
+    }
+
+    /**
+     * Reassemble a chunked entry, the tailer being positioned just after the header of its first
+     * chunk. The following chunks are read with the tailers returned by tailerForSlab, moving on to
+     * later slabs as need be. tailerForSlab may return null to abandon the entry.
+     * <p>
+     * The chunk headers are scanned for the last chunk before anything is allocated or copied, so a
+     * consumer retrying an entry that is still being appended only pays for reading the headers.
+     *
+     * @return the whole entry or null if its remaining chunks haven't all been appended yet, or it
+     *         was abandoned
+     */
+    private ChunkedEntry readChunked(int slab, ExcerptTailer tailer, IntFunction<ExcerptTailer> tailerForSlab) {
+        int firstSlab = slab;
+        long firstIndex = tailer.index();
+        while (true) {
+            int appenderSlab = appenderSlab(); // read before the tailer, see pollCompeting
+            if (tailer.nextIndex()) {
+                if (tailer.readByte() == LAST_CHUNK) {
+                    break;
+                }
+            } else if (slab == appenderSlab) {
+                return null;
+            } else {
+                tailer = tailerForSlab.apply(++slab);
+                if (tailer == null) {
+                    return null;
+                }
+                tailer.toStart();
+            }
+        }
+        int lastSlab = slab;
+        long lastIndex = tailer.index();
+
+        if (lastSlab != firstSlab) {
+            tailer = tailerForSlab.apply(firstSlab);
+            if (tailer == null) {
+                return null;
+            }
+            slab = firstSlab;
+        }
+        tailer.index(firstIndex);
+        tailer.readByte(); // FIRST_CHUNK
+        long length = tailer.readLong();
+        Bytes bytes = new ByteBufferBytes(ByteBuffer.allocate((int) length));
+        bytes.write(tailer, tailer.position(), tailer.remaining());
+        while (slab != lastSlab || tailer.index() != lastIndex) {
+            if (tailer.nextIndex()) {
+                tailer.readByte(); // NEXT_CHUNK or LAST_CHUNK
+                bytes.write(tailer, tailer.position(), tailer.remaining());
+            } else {
+                tailer = tailerForSlab.apply(++slab);
+                if (tailer == null) {
+                    return null;
+                }
+                tailer.toStart();
+            }
+        }
+        bytes.flip();
+        return new ChunkedEntry(bytes, slab, tailer);
+    }
+
+    private static final class ChunkedEntry {
+        private final Bytes bytes;
+        private final int slab; // of the last chunk
+        private final ExcerptTailer tailer; // positioned at the last chunk
+
+        ChunkedEntry(Bytes bytes, int slab, ExcerptTailer tailer) {
+            this.bytes = bytes;
+            this.slab = slab;
+            this.tailer = tailer;
+        }
     }
 
     private void toPosition(ChroniclePosition pos, ExcerptTailer tailer) {
+        long current = pos.get();
+        toPosition(ChroniclePosition.slab(current), ChroniclePosition.index(current), tailer);
+    }
+
+    private void toPosition(int slab, int index, ExcerptTailer tailer) {
         boolean found;
-        int index = pos.index();
         if (index == -1) {
             tailer.toStart();
             found = true;
         } else {
-            found = tailer.index(pos.index());
+            found = tailer.index(index);
         }
         if (!found) {
-            throw new IllegalStateException("chronicle position slab:" + pos.slab() + " index:" + index);
+            throw new IllegalStateException("chronicle position slab:" + slab + " index:" + index);
         }
     }
 
@@ -495,29 +1694,90 @@ public class ChronicleBlockingQueue<E> implements BlockingQueue<E>, AutoCloseabl
             release(cachedTailer);
             tailer = cachedTailer = chronicleTailer(slab);
             cachedTailerSlabIndex = slab;
+            cachedTailerPosition = NOT_SET;
         } else {
             tailer = cachedTailer;
         }
         return tailer;
     }
 
+    /**
+     * Tailer for reading the given slab on behalf of a consumer. With competing consumers each thread
+     * has its own tailer, otherwise the single cached tailer is used.
+     */
+    private ExcerptTailer consumerTailer(int slab) {
+        if (!competingConsumers) {
+            return cachedTailerForSlab(slab);
+        }
+        ConsumerTailer consumer = consumerTailers.get();
+        if (slab != consumer.slab) {
+            release(consumer.tailer);
+            consumer.tailer = chronicleTailer(slab);
+            consumer.slab = slab;
+        }
+        return consumer.tailer;
+    }
+
+    /**
+     * Tailer for a consumer to read the given slab, at or after that of the position current. A slab
+     * below the manifest's first slab is never opened, as opening a deleted slab would create its
+     * files again.
+     *
+     * @return the tailer, or null if the position has moved on from current meanwhile, when the
+     *         slab may have been deleted and the consumer must start again from the new position
+     */
+    private ExcerptTailer consumerTailer(long current, int slab) {
+        if (slab < manifest.firstSlab()) {
+            return null;
+        }
+        ExcerptTailer tailer = consumerTailer(slab);
+        if (position.get() != current) {
+            if (slab < manifest.firstSlab()) {
+                discardDeletedSlab(slab); // deleted between checking and opening it
+            }
+            return null;
+        }
+        return tailer;
+    }
+
+    /**
+     * Close a slab found to have been deleted while a consumer opened it, and delete the empty files
+     * opening it may have created again.
+     */
+    private void discardDeletedSlab(int slab) {
+        if (competingConsumers) {
+            ConsumerTailer consumer = consumerTailers.get();
+            release(consumer.tailer);
+            consumer.tailer = null;
+            consumer.slab = NOT_SET;
+        } else {
+            release(cachedTailer);
+            cachedTailer = null;
+            cachedTailerSlabIndex = NOT_SET;
+        }
+        slabCache.evict(slab);
+        try {
+            Files.deleteIfExists(new File(config.storageDirectory, slabName(slab) + ".index").toPath());
+            Files.deleteIfExists(new File(config.storageDirectory, slabName(slab) + ".data").toPath());
+        } catch (IOException e) {
+            throw new RuntimeIOException(e);
+        }
+    }
+
+    private static final class ConsumerTailer {
+        private ExcerptTailer tailer;
+        private int slab = NOT_SET;
+    }
+
     private void release(ExcerptTailer tailer) {
         if (tailer != null) {
-            try {
-                tailer.chronicle().close();
-            } catch (IOException e) {
-                throw new RuntimeIOException(e);
-            }
+            slabCache.release(tailer.chronicle());
         }
     }
 
     private void release(ExcerptAppender appender) {
         if (appender != null) {
-            try {
-                appender.chronicle().close();
-            } catch (IOException e) {
-                throw new RuntimeIOException(e);
-            }
+            slabCache.release(appender.chronicle());
         }
     }
 
@@ -528,9 +1788,25 @@ public class ChronicleBlockingQueue<E> implements BlockingQueue<E>, AutoCloseabl
 
     @Override
     public void close() throws Exception {
+        if (slabPreallocator != null) {
+            slabPreallocator.shutdown();
+            discardPreallocatedSlab();
+        }
         release(cachedTailer);
         release(cachedAppender);
+        for (ConsumerTailer consumer : allConsumerTailers) {
+            release(consumer.tailer);
+        }
+        slabCache.close(); // along with any left open by unclosed iterators
+        if (slabReclaimer != null) {
+            slabReclaimer.close();
+        }
         position.close();
+        counters.close();
+        manifest.close();
+        if (signal != null) {
+            signal.close();
+        }
     }
 
     @NotNull
@@ -558,6 +1834,20 @@ public class ChronicleBlockingQueue<E> implements BlockingQueue<E>, AutoCloseabl
         @SuppressWarnings("unchecked")
         private BytesDeserializer<E> deserializer = (Bytes bytes) -> (E) bytes.readObject();
 
+        private WaitStrategy waitStrategy = new BusySpinWaitStrategy();
+        private boolean sharedSignal = false;
+        private boolean multiProducer = false;
+        private boolean competingConsumers = false;
+        private boolean multiProcess = false;
+        private boolean preallocateSlabs = false;
+        private int maxPendingSlabDeletions = 0;
+        private int slabPoolSize = 0;
+        private int maxIdleSlabs = 2;
+        private double weightEstimatePercentile = 0;
+        private boolean chunkedMessages = false;
+        private long manifestLockTimeoutMillis = 10_000L;
+        private boolean breakStaleManifestLock = false;
+
         public Builder(File storageDirectory) {
             if (storageDirectory == null) {
                 throw new IllegalArgumentException("storageDirectory is required");
@@ -621,7 +1911,7 @@ public class ChronicleBlockingQueue<E> implements BlockingQueue<E>, AutoCloseabl
             return serializer;
         }
 
-        public Builder serializer(BytesSerializer<E> serializer) {
+        public Builder<E> serializer(BytesSerializer<E> serializer) {
             this.serializer = require(serializer, "serializer", (v) -> v != null);
             return this;
         }
@@ -630,12 +1920,226 @@ public class ChronicleBlockingQueue<E> implements BlockingQueue<E>, AutoCloseabl
             return deserializer;
         }
 
-        public Builder deserializer(BytesDeserializer<E> deserializer) {
+        public Builder<E> deserializer(BytesDeserializer<E> deserializer) {
             this.deserializer = require(deserializer, "deserializer", (v) -> v != null);
             return this;
         }
 
+        /**
+         * Use a serializer and deserializer specialised for the given element type, see
+         * {@link ElementCodec}. These are much faster than the default Java serialization for boxed
+         * primitives, Strings, byte arrays, BytesMarshallable and Externalizable types, but aren't
+         * compatible with entries written by it. A subsequent serializer or deserializer replaces
+         * the corresponding half.
+         */
+        public Builder<E> elementType(Class<E> elementType) {
+            ElementCodec<E> codec = ElementCodec.forType(require(elementType, "elementType", (v) -> v != null));
+            this.serializer = codec;
+            this.deserializer = codec;
+            return this;
+        }
+
+        public WaitStrategy waitStrategy() {
+            return waitStrategy;
+        }
+
+        /**
+         * Strategy used by put, take and their timed variants to wait for the queue to change.
+         * Defaults to {@link BusySpinWaitStrategy}.
+         */
+        public Builder<E> waitStrategy(WaitStrategy waitStrategy) {
+            this.waitStrategy = require(waitStrategy, "waitStrategy", (v) -> v != null);
+            return this;
+        }
+
+        public boolean sharedSignal() {
+            return sharedSignal;
+        }
+
+        /**
+         * When true blocked operations are woken by appends made from any process sharing the
+         * storageDirectory, via a memory mapped {@code <name>.signal} file. Replaces the configured
+         * waitStrategy with a {@link SharedSignalWaitStrategy}.
+         */
+        public Builder<E> sharedSignal(boolean sharedSignal) {
+            this.sharedSignal = sharedSignal;
+            return this;
+        }
+
+        public boolean multiProducer() {
+            return multiProducer;
+        }
+
+        /**
+         * When true offer, add and put may be called concurrently from many threads. Each element
+         * is serialized into a thread local buffer of messageCapacity bytes before being appended.
+         */
+        public Builder<E> multiProducer(boolean multiProducer) {
+            this.multiProducer = multiProducer;
+            return this;
+        }
+
+        public boolean competingConsumers() {
+            return competingConsumers;
+        }
+
+        /**
+         * When true poll, take and drainTo may be called concurrently from many threads, each element
+         * is delivered to exactly one of them. Every consuming thread maps its own tailer.
+         */
+        public Builder<E> competingConsumers(boolean competingConsumers) {
+            this.competingConsumers = competingConsumers;
+            return this;
+        }
+
+        public boolean multiProcess() {
+            return multiProcess;
+        }
+
+        /**
+         * When true several processes may append to and consume from the storageDirectory at once.
+         * Appends, including rolling over to a new slab, are arbitrated through a lock in the
+         * {@code <name>.manifest} file and consumers compete as with competingConsumers. Deleting a
+         * drained slab doesn't take the lock, the consumer that claims past it advances the first
+         * slab in the manifest with a compare and swap. Appends from alternating processes are
+         * expensive, as each must reopen the current slab.
+         */
+        public Builder<E> multiProcess(boolean multiProcess) {
+            this.multiProcess = multiProcess;
+            return this;
+        }
+
+        public boolean preallocateSlabs() {
+            return preallocateSlabs;
+        }
+
+        /**
+         * When true the slab after the one being appended to is created on a background thread, so
+         * rolling over to it doesn't stall the producer creating and mapping files. Costs a thread
+         * per queue and up to one slab of disk beyond maxNumberOfSlabs.
+         */
+        public Builder<E> preallocateSlabs(boolean preallocateSlabs) {
+            this.preallocateSlabs = preallocateSlabs;
+            return this;
+        }
+
+        public int maxPendingSlabDeletions() {
+            return maxPendingSlabDeletions;
+        }
+
+        /**
+         * When greater than zero drained slabs are deleted on a background thread rather than by the
+         * consumer crossing the slab boundary. The freed capacity is available at once, up to this
+         * many slabs may wait for deletion before consumers delete them inline again. Their files
+         * are still on disk meanwhile, so the slab files on disk may exceed maxNumberOfSlabs by up
+         * to this many. Defaults to zero, deleting inline.
+         */
+        public Builder<E> maxPendingSlabDeletions(int maxPendingSlabDeletions) {
+            this.maxPendingSlabDeletions = require(maxPendingSlabDeletions, "maxPendingSlabDeletions", (v) -> v >= 0);
+            return this;
+        }
+
+        public double weightEstimatePercentile() {
+            return weightEstimatePercentile;
+        }
+
+        /**
+         * When greater than zero offer learns the serialized size of elements the serializer can't
+         * weigh, and once it has seen enough writes them directly into the slab with a reservation
+         * covering this proportion of them, eg 0.99. Larger elements are retried through a scratch
+         * buffer. Defaults to zero, always serializing elements of unknown weight into the scratch
+         * buffer first. Ignored by multiProducer, which always uses the scratch buffer.
+         */
+        public Builder<E> weightEstimatePercentile(double weightEstimatePercentile) {
+            this.weightEstimatePercentile = require(weightEstimatePercentile, "weightEstimatePercentile", (v) -> v >= 0 && v <= 1);
+            return this;
+        }
+
+        public boolean chunkedMessages() {
+            return chunkedMessages;
+        }
+
+        /**
+         * When true elements larger than messageCapacity are split into chunks spanning as many
+         * excerpts and slabs as need be, and reassembled by poll, peek and iteration. Every entry
+         * gains a one byte header, so a queue can't be reopened with a different setting, and every
+         * element is serialized into a scratch buffer before being appended.
+         * <p>
+         * All the chunks of an element are appended under a single hold of the append lock, which
+         * with multiProcess includes the manifest lock. An element taking longer than
+         * manifestLockTimeoutMillis to append, which a few hundred megabytes spanning many slabs
+         * can, makes other processes' appends fail meanwhile, or with breakStaleManifestLock take
+         * the lock over and append into the middle of its chunks. Keep elements well within that
+         * time, or raise the timeout, when combining chunkedMessages with multiProcess.
+         */
+        public Builder<E> chunkedMessages(boolean chunkedMessages) {
+            this.chunkedMessages = chunkedMessages;
+            return this;
+        }
+
+        public long manifestLockTimeoutMillis() {
+            return manifestLockTimeoutMillis;
+        }
+
+        /**
+         * With multiProcess, how long another process may hold the manifest lock before it's
+         * presumed to have died holding it. Appends, and opening the queue, then fail with an
+         * IllegalStateException naming the holder, unless breakStaleManifestLock. Consumers never
+         * take the lock, so aren't affected. Defaults to 10s.
+         */
+        public Builder<E> manifestLockTimeoutMillis(long manifestLockTimeoutMillis) {
+            this.manifestLockTimeoutMillis = require(manifestLockTimeoutMillis, "manifestLockTimeoutMillis", (v) -> v > 0);
+            return this;
+        }
+
+        public boolean breakStaleManifestLock() {
+            return breakStaleManifestLock;
+        }
+
+        /**
+         * When true a manifest lock held beyond manifestLockTimeoutMillis is taken over rather than
+         * failing. Should the holder only have stalled, it fails when it next unlocks, and may have
+         * left its append unfinished.
+         */
+        public Builder<E> breakStaleManifestLock(boolean breakStaleManifestLock) {
+            this.breakStaleManifestLock = breakStaleManifestLock;
+            return this;
+        }
+
+        public int maxIdleSlabs() {
+            return maxIdleSlabs;
+        }
+
+        /**
+         * Number of slabs to keep open and mapped after the appender, consumers and iterators have
+         * moved off them, so moving back doesn't have to reopen them. Defaults to 2.
+         */
+        public Builder<E> maxIdleSlabs(int maxIdleSlabs) {
+            this.maxIdleSlabs = require(maxIdleSlabs, "maxIdleSlabs", (v) -> v >= 0);
+            return this;
+        }
+
+        public int slabPoolSize() {
+            return slabPoolSize;
+        }
+
+        /**
+         * Number of drained slab data files to keep for reuse by new slabs, rather than deleting them
+         * and creating new ones. Iterators lagging the consumers by more than a slab may read reused
+         * data. Defaults to zero, and can't be combined with multiProcess.
+         */
+        public Builder<E> slabPoolSize(int slabPoolSize) {
+            this.slabPoolSize = require(slabPoolSize, "slabPoolSize", (v) -> v >= 0);
+            return this;
+        }
+
         public ChronicleBlockingQueue<E> build() {
+            if (multiProcess && slabPoolSize > 0) {
+                throw new IllegalArgumentException("slabPoolSize can't be combined with multiProcess");
+            }
+            if (chunkedMessages && messageCapacity <= FIRST_CHUNK_HEADER) {
+                throw new IllegalArgumentException("chunkedMessages requires a messageCapacity over " + FIRST_CHUNK_HEADER);
+            }
             return new ChronicleBlockingQueue<E>(this);
         }
 
@@ -663,31 +2167,44 @@ public class ChronicleBlockingQueue<E> implements BlockingQueue<E>, AutoCloseabl
         @Override
         protected E computeNext() {
             if (tailer.nextIndex()) {
-                return deserialise(tailer);
+                if (!startsChunkedEntry(tailer)) {
+                    return deserialise(tailer);
+                }
+                ChunkedEntry entry = readChunked(slab, tailer, this::moveTo);
+                if (entry != null) {
+                    return deserialise(entry.bytes);
+                }
+                close(); // the last entry is still being appended
+                return endOfData();
             }
-            if (slab == cachedAppenderSlabIndex) {
+            if (slab == appenderSlab()) {
                 close();
                 return endOfData();
             }
             // move on to the next slab
-            slab++;
-            release(tailer);
-            tailer = chronicleTailer(slab);
-            tailer.toStart();
+            moveTo(slab + 1).toStart();
 
             return computeNext();
         }
 
+        private ExcerptTailer moveTo(int nextSlab) {
+            release(tailer);
+            tailer = chronicleTailer(nextSlab);
+            slab = nextSlab;
+            return tailer;
+        }
+
         public void close() {
             release(tailer);
             tailer = null; //
         }
     }
 
-    private E deserialise(ExcerptTailer tailer) {
-        E value = config.deserializer().deserialize(tailer);
+    private E deserialise(Bytes bytes) {
+        E value = config.deserializer().deserialize(bytes);
         if (value == null) {
-            throw new IllegalStateException("Deserializer has returned null for index:" + tailer.index());
+            throw new IllegalStateException("Deserializer has returned null"
+                    + (bytes instanceof ExcerptTailer ? " for index:" + ((ExcerptTailer) bytes).index() : ""));
         }
         return value;
     }
@@ -0,0 +1,83 @@
+package com.logicalpractice.chronicle.blockingqueue;
+
+import net.openhft.lang.io.VanillaMappedBytes;
+import net.openhft.lang.io.VanillaMappedFile;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Persisted enqueue and dequeue counters, allowing the size of the queue to be calculated without
+ * reading it.
+ *
+ * <p>The enqueue counters are written by producers and the dequeue counter by consumers, so they are
+ * placed on separate cache lines.</p>
+ */
+public class ChronicleCounters implements Closeable {
+
+    private static final long ENQUEUED = 0L;
+    private static final long ENQUEUED_BYTES = 8L;
+    private static final long DEQUEUED = 64L;
+
+    private final VanillaMappedBytes bytes;
+
+    public ChronicleCounters(File counters) {
+        try {
+            bytes = VanillaMappedFile.readWriteBytes(counters, 128);
+        } catch (IOException e) {
+            throw new RuntimeIOException(e);
+        }
+    }
+
+    public long enqueued() {
+        return bytes.readVolatileLong(ENQUEUED);
+    }
+
+    public long enqueuedBytes() {
+        return bytes.readVolatileLong(ENQUEUED_BYTES);
+    }
+
+    public long dequeued() {
+        return bytes.readVolatileLong(DEQUEUED);
+    }
+
+    /**
+     * Number of elements enqueued but not yet dequeued.
+     */
+    public long size() {
+        // read dequeued first, so a concurrent dequeue can only make the result too large
+        // rather than negative
+        long dequeued = dequeued();
+        return Math.max(0L, enqueued() - dequeued);
+    }
+
+    public void enqueue(long count, long byteCount) {
+        add(ENQUEUED_BYTES, byteCount);
+        add(ENQUEUED, count);
+    }
+
+    public void dequeue(long count) {
+        add(DEQUEUED, count);
+    }
+
+    /**
+     * Reset the counters such that size() returns the given value.
+     */
+    public void reset(long size, long byteCount) {
+        bytes.writeOrderedLong(DEQUEUED, 0L);
+        bytes.writeOrderedLong(ENQUEUED_BYTES, byteCount);
+        bytes.writeOrderedLong(ENQUEUED, size);
+    }
+
+    private void add(long offset, long delta) {
+        long value;
+        do {
+            value = bytes.readVolatileLong(offset);
+        } while (!bytes.compareAndSwapLong(offset, value, value + delta));
+    }
+
+    public void close() {
+        bytes.close();
+    }
+}
@@ -0,0 +1,55 @@
+package com.logicalpractice.chronicle.blockingqueue;
+
+import net.openhft.lang.io.Bytes;
+
+/**
+ * Queue of double values written as fixed width 8 byte excerpts, built on a ChronicleBlockingQueue.
+ *
+ * <p>offerDouble, pollDouble and takeDouble neither box nor allocate. The same queue is available as a
+ * BlockingQueue of Double through {@link #asQueue()}.</p>
+ */
+public class ChronicleDoubleBlockingQueue extends PrimitiveBlockingQueue<Double> {
+
+    /**
+     * @param builder configuration of the underlying queue, its serializer and deserializer are replaced
+     */
+    public ChronicleDoubleBlockingQueue(ChronicleBlockingQueue.Builder<Double> builder) {
+        super(builder, 8, Bytes::readDouble);
+    }
+
+    /**
+     * @return false if the queue is full
+     */
+    public boolean offerDouble(double value) {
+        return offerBits(Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * @return the head of the queue or valueIfEmpty if the queue is empty
+     */
+    public double pollDouble(double valueIfEmpty) {
+        return Double.longBitsToDouble(pollBits(Double.doubleToRawLongBits(valueIfEmpty)));
+    }
+
+    /**
+     * @return the head of the queue, waiting for one if the queue is empty
+     */
+    public double takeDouble() throws InterruptedException {
+        return Double.longBitsToDouble(takeBits());
+    }
+
+    @Override
+    long bits(Double element) {
+        return Double.doubleToRawLongBits(element);
+    }
+
+    @Override
+    void writeBits(Bytes bytes, long bits) {
+        bytes.writeDouble(Double.longBitsToDouble(bits));
+    }
+
+    @Override
+    long readBits(Bytes bytes) {
+        return Double.doubleToRawLongBits(bytes.readDouble());
+    }
+}
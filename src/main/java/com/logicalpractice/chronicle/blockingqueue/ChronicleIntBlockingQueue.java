@@ -0,0 +1,55 @@
+package com.logicalpractice.chronicle.blockingqueue;
+
+import net.openhft.lang.io.Bytes;
+
+/**
+ * Queue of int values written as fixed width 4 byte excerpts, built on a ChronicleBlockingQueue.
+ *
+ * <p>offerInt, pollInt and takeInt neither box nor allocate. The same queue is available as a
+ * BlockingQueue of Integer through {@link #asQueue()}.</p>
+ */
+public class ChronicleIntBlockingQueue extends PrimitiveBlockingQueue<Integer> {
+
+    /**
+     * @param builder configuration of the underlying queue, its serializer and deserializer are replaced
+     */
+    public ChronicleIntBlockingQueue(ChronicleBlockingQueue.Builder<Integer> builder) {
+        super(builder, 4, Bytes::readInt);
+    }
+
+    /**
+     * @return false if the queue is full
+     */
+    public boolean offerInt(int value) {
+        return offerBits(value);
+    }
+
+    /**
+     * @return the head of the queue or valueIfEmpty if the queue is empty
+     */
+    public int pollInt(int valueIfEmpty) {
+        return (int) pollBits(valueIfEmpty);
+    }
+
+    /**
+     * @return the head of the queue, waiting for one if the queue is empty
+     */
+    public int takeInt() throws InterruptedException {
+        return (int) takeBits();
+    }
+
+    @Override
+    long bits(Integer element) {
+        return element;
+    }
+
+    @Override
+    void writeBits(Bytes bytes, long bits) {
+        bytes.writeInt((int) bits);
+    }
+
+    @Override
+    long readBits(Bytes bytes) {
+        return bytes.readInt();
+    }
+}
@@ -0,0 +1,55 @@
+package com.logicalpractice.chronicle.blockingqueue;
+
+import net.openhft.lang.io.Bytes;
+
+/**
+ * Queue of long values written as fixed width 8 byte excerpts, built on a ChronicleBlockingQueue.
+ *
+ * <p>offerLong, pollLong and takeLong neither box nor allocate. The same queue is available as a
+ * BlockingQueue of Long through {@link #asQueue()}.</p>
+ */
+public class ChronicleLongBlockingQueue extends PrimitiveBlockingQueue<Long> {
+
+    /**
+     * @param builder configuration of the underlying queue, its serializer and deserializer are replaced
+     */
+    public ChronicleLongBlockingQueue(ChronicleBlockingQueue.Builder<Long> builder) {
+        super(builder, 8, Bytes::readLong);
+    }
+
+    /**
+     * @return false if the queue is full
+     */
+    public boolean offerLong(long value) {
+        return offerBits(value);
+    }
+
+    /**
+     * @return the head of the queue or valueIfEmpty if the queue is empty
+     */
+    public long pollLong(long valueIfEmpty) {
+        return pollBits(valueIfEmpty);
+    }
+
+    /**
+     * @return the head of the queue, waiting for one if the queue is empty
+     */
+    public long takeLong() throws InterruptedException {
+        return takeBits();
+    }
+
+    @Override
+    long bits(Long element) {
+        return element;
+    }
+
+    @Override
+    void writeBits(Bytes bytes, long bits) {
+        bytes.writeLong(bits);
+    }
+
+    @Override
+    long readBits(Bytes bytes) {
+        return bytes.readLong();
+    }
+}
@@ -0,0 +1,173 @@
+package com.logicalpractice.chronicle.blockingqueue;
+
+import net.openhft.lang.io.VanillaMappedBytes;
+import net.openhft.lang.io.VanillaMappedFile;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Memory mapped record of the slabs making up a queue, shared by every process using the queue
+ * directory. Slabs are contiguous, so the first and last indices are enough to open the queue and
+ * roll over without listing the directory.
+ *
+ * <p>Also holds a lock word arbitrating the processes that append to and create slabs, deletion
+ * only advances the first slab with a compare and swap. The lock is held by an owner id, which
+ * must be non zero and unique to the queue instance. The lock isn't released if the owning process
+ * dies while holding it, so acquiring it times out once the same holder has kept it for
+ * lockTimeoutNanos. It then either fails naming the holder, or with breakStaleLock takes the lock
+ * over. A holder that was merely stalled then fails to unlock.</p>
+ */
+public class ChronicleManifest implements Closeable {
+
+    private static final long LOCK = 0L;
+    private static final long LAST_APPENDER = 8L;
+    private static final long FIRST_SLAB = 16L;
+    private static final long LAST_SLAB = 20L;
+    private static final long LOCK_COUNT = 24L; // incremented by each acquisition
+
+    private static final int SIZE = 64;
+
+    private final VanillaMappedBytes bytes;
+    private final long lockTimeoutNanos;
+    private final boolean breakStaleLock;
+
+    public ChronicleManifest(File manifest) {
+        this(manifest, TimeUnit.SECONDS.toNanos(10), false);
+    }
+
+    /**
+     * @param lockTimeoutNanos how long a single holder may keep the lock before it is presumed dead
+     * @param breakStaleLock take over a lock presumed dead rather than failing
+     */
+    public ChronicleManifest(File manifest, long lockTimeoutNanos, boolean breakStaleLock) {
+        this.lockTimeoutNanos = lockTimeoutNanos;
+        this.breakStaleLock = breakStaleLock;
+        try {
+            bytes = VanillaMappedFile.readWriteBytes(manifest, SIZE);
+        } catch (IOException e) {
+            throw new RuntimeIOException(e);
+        }
+    }
+
+    /**
+     * Acquire the lock, spinning then parking until it is available. Not reentrant.
+     *
+     * @param owner non zero id of the acquiring queue instance
+     * @throws IllegalStateException if the same holder has kept the lock for lockTimeoutNanos,
+     *         unless breakStaleLock
+     */
+    public void lock(long owner) {
+        long holder = 0L;
+        long holderCount = 0L;
+        long heldSince = 0L;
+        for (int counter = 0; !bytes.compareAndSwapLong(LOCK, 0L, owner); counter++) {
+            if (counter < 100) {
+                continue;
+            }
+            if (counter < 200) {
+                Thread.yield();
+                continue;
+            }
+            LockSupport.parkNanos(this, 1000L);
+
+            long currentHolder = bytes.readVolatileLong(LOCK);
+            long currentCount = bytes.readVolatileLong(LOCK_COUNT);
+            if (currentHolder != holder || currentCount != holderCount) {
+                // a different acquisition, start timing it afresh
+                holder = currentHolder;
+                holderCount = currentCount;
+                heldSince = System.nanoTime();
+            } else if (holder != 0L && System.nanoTime() - heldSince >= lockTimeoutNanos) {
+                if (!breakStaleLock) {
+                    throw new IllegalStateException("manifest lock held by " + holder + " for over "
+                            + TimeUnit.NANOSECONDS.toMillis(lockTimeoutNanos) + "ms, its process may have died");
+                }
+                if (bytes.compareAndSwapLong(LOCK, holder, owner)) {
+                    break; // taken over from the presumed dead holder
+                }
+            }
+        }
+        bytes.writeOrderedLong(LOCK_COUNT, bytes.readVolatileLong(LOCK_COUNT) + 1L); // only the holder writes
+    }
+
+    /**
+     * @return id of the queue instance holding the lock, or zero
+     */
+    public long lockHolder() {
+        return bytes.readVolatileLong(LOCK);
+    }
+
+    public void unlock(long owner) {
+        if (!bytes.compareAndSwapLong(LOCK, owner, 0L)) {
+            throw new IllegalMonitorStateException("manifest lock is not held by " + owner);
+        }
+    }
+
+    /**
+     * @return id of the queue instance that last held the lock to append, or zero
+     */
+    public long lastAppender() {
+        return bytes.readVolatileLong(LAST_APPENDER);
+    }
+
+    public void lastAppender(long owner) {
+        bytes.writeOrderedLong(LAST_APPENDER, owner);
+    }
+
+    /**
+     * @return the index of the oldest slab, zero when the manifest is new
+     */
+    public int firstSlab() {
+        return bytes.readVolatileInt(FIRST_SLAB);
+    }
+
+    /**
+     * Move the first slab forward to the given index, a smaller value than the current is ignored.
+     */
+    public void advanceFirstSlab(int slab) {
+        int current;
+        do {
+            current = firstSlab();
+            if (slab <= current) {
+                return;
+            }
+        } while (!bytes.compareAndSwapInt(FIRST_SLAB, current, slab));
+    }
+
+    /**
+     * @return the index of the slab currently being appended to, zero when the manifest is new
+     */
+    public int lastSlab() {
+        return bytes.readVolatileInt(LAST_SLAB);
+    }
+
+    public void lastSlab(int slab) {
+        bytes.writeOrderedInt(LAST_SLAB, slab);
+    }
+
+    public void slabs(int first, int last) {
+        bytes.writeOrderedInt(FIRST_SLAB, first);
+        bytes.writeOrderedInt(LAST_SLAB, last);
+    }
+
+    /**
+     * @return the first and last slabs read together, a value which changes whenever either does
+     */
+    public long slabRange() {
+        return bytes.readVolatileLong(FIRST_SLAB);
+    }
+
+    public int numberOfSlabs() {
+        // read first then last so that a concurrent roll over can only over count
+        int first = firstSlab();
+        return lastSlab() - first + 1;
+    }
+
+    public void close() {
+        bytes.close();
+    }
+}
@@ -39,8 +39,28 @@ public class ChroniclePosition implements Closeable {
     }
 
     public int slab() {
-        // hi 32 bits
-        return (int) ((get() >> 32));
+        return slab(get());
+    }
+
+    /**
+     * @return the slab of the given position value, hi 32 bits
+     */
+    public static int slab(long position) {
+        return (int) (position >> 32);
+    }
+
+    /**
+     * @return the index of the given position value, lower 32 bits
+     */
+    public static int index(long position) {
+        return (int) position;
+    }
+
+    /**
+     * @return position value combining slab and index
+     */
+    public static long position(int slab, int index) {
+        return ((long) slab) << 32 | (((long) index) & 0xffffffffL);
     }
 
     public void slab(int newSlab) {
@@ -48,15 +68,22 @@ public class ChroniclePosition implements Closeable {
         set(value | ((long)newSlab) << 32);
     }
 
+    /**
+     * Move to the start of the next slab, with the index at zero.
+     *
+     * @return the new slab
+     * @deprecated index zero is the slab's first entry, so a consumer moving on before that entry is
+     *             appended would skip it. Set {@code position(slab + 1, -1)} instead.
+     */
+    @Deprecated
     public int incrementSlabAndResetIndex() {
-        long slab = slab() + 1;
-        set(slab << 32); // sets the index to zero in the process
-        return (int)slab;
+        int slab = slab() + 1;
+        set(position(slab, 0));
+        return slab;
     }
 
     public int index() {
-        // lower 32 bits
-        return (int) get();
+        return index(get());
     }
 
     public void index(int newIndex) {
@@ -0,0 +1,43 @@
+package com.logicalpractice.chronicle.blockingqueue;
+
+import net.openhft.lang.io.VanillaMappedBytes;
+import net.openhft.lang.io.VanillaMappedFile;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Memory mapped control word shared between every process using a queue directory.
+ *
+ * <p>Holds the published write sequence, incremented by producers after each append. It is 32 bit
+ * and allowed to wrap, waiters are only interested in whether it has changed. Producers publish
+ * unconditionally: skipping the increment when nothing waits would need a store load fence between
+ * the append and reading a waiter count, which costs as much as the increment itself.</p>
+ */
+public class ChronicleSignal implements Closeable {
+
+    private static final long SEQUENCE = 0L;
+
+    private final VanillaMappedBytes bytes;
+
+    public ChronicleSignal(File signal) {
+        try {
+            bytes = VanillaMappedFile.readWriteBytes(signal, 4);
+        } catch (IOException e) {
+            throw new RuntimeIOException(e);
+        }
+    }
+
+    public int sequence() {
+        return bytes.readVolatileInt(SEQUENCE);
+    }
+
+    public int publish() {
+        return bytes.addAndGetInt(SEQUENCE, 1);
+    }
+
+    public void close() {
+        bytes.close();
+    }
+}
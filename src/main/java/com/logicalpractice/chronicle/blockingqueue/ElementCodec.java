@@ -0,0 +1,210 @@
+package com.logicalpractice.chronicle.blockingqueue;
+
+import net.openhft.lang.io.Bytes;
+import net.openhft.lang.io.serialization.BytesMarshallable;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Serializer and deserializer pair specialised for a single element type, chosen once by
+ * {@link #forType(Class)} rather than per element.
+ *
+ * <p>Boxed primitives are written at their fixed width, Strings and byte arrays with a stop bit
+ * encoded length, {@link BytesMarshallable} and {@link Externalizable} types by their own methods
+ * without a class descriptor, and types annotated with {@link QueueElement} by their generated
+ * codec. Any other type falls back to {@link Bytes#writeObject(Object)}.</p>
+ */
+public final class ElementCodec<E> implements BytesSerializer<E>, BytesDeserializer<E> {
+
+    private final ToIntFunction<E> weigher;
+    private final BiConsumer<E, Bytes> writer;
+    private final Function<Bytes, E> reader;
+
+    private ElementCodec(ToIntFunction<E> weigher, BiConsumer<E, Bytes> writer, Function<Bytes, E> reader) {
+        this.weigher = weigher;
+        this.writer = writer;
+        this.reader = reader;
+    }
+
+    private static <E> ElementCodec<E> fixed(int weight, BiConsumer<E, Bytes> writer, Function<Bytes, E> reader) {
+        return new ElementCodec<>(e -> weight, writer, reader);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E> ElementCodec<E> forType(Class<E> type) {
+        return (ElementCodec<E>) untypedForType(type);
+    }
+
+    private static ElementCodec<?> untypedForType(Class<?> type) {
+        if (type == Long.class) {
+            return fixed(8, (Long e, Bytes b) -> b.writeLong(e), Bytes::readLong);
+        }
+        if (type == Integer.class) {
+            return fixed(4, (Integer e, Bytes b) -> b.writeInt(e), Bytes::readInt);
+        }
+        if (type == Double.class) {
+            return fixed(8, (Double e, Bytes b) -> b.writeDouble(e), Bytes::readDouble);
+        }
+        if (type == Float.class) {
+            return fixed(4, (Float e, Bytes b) -> b.writeFloat(e), Bytes::readFloat);
+        }
+        if (type == Short.class) {
+            return fixed(2, (Short e, Bytes b) -> b.writeShort(e), Bytes::readShort);
+        }
+        if (type == Character.class) {
+            return fixed(2, (Character e, Bytes b) -> b.writeChar(e), Bytes::readChar);
+        }
+        if (type == Byte.class) {
+            return fixed(1, (Byte e, Bytes b) -> b.writeByte(e), Bytes::readByte);
+        }
+        if (type == Boolean.class) {
+            return fixed(1, (Boolean e, Bytes b) -> b.writeBoolean(e), Bytes::readBoolean);
+        }
+        if (type == String.class) {
+            return new ElementCodec<String>(
+                    ElementCodec::weighUtf,
+                    (e, b) -> b.writeUTF\u0394(e),
+                    Bytes::readUTF\u0394);
+        }
+        if (type == byte[].class) {
+            return new ElementCodec<byte[]>(
+                    ElementCodec::weighBytes,
+                    (e, b) -> writeBytes(b, e),
+                    ElementCodec::readBytes);
+        }
+        if (type.isAnnotationPresent(QueueElement.class)) {
+            return generated(type);
+        }
+        if (BytesMarshallable.class.isAssignableFrom(type)) {
+            Constructor<?> constructor = noArgConstructor(type);
+            return new ElementCodec<BytesMarshallable>(
+                    e -> -1,
+                    (e, b) -> e.writeMarshallable(b),
+                    b -> {
+                        BytesMarshallable e = (BytesMarshallable) newInstance(constructor);
+                        e.readMarshallable(b);
+                        return e;
+                    });
+        }
+        if (Externalizable.class.isAssignableFrom(type)) {
+            Constructor<?> constructor = noArgConstructor(type);
+            return new ElementCodec<Externalizable>(
+                    e -> -1,
+                    (e, b) -> {
+                        try {
+                            e.writeExternal(b);
+                        } catch (IOException ex) {
+                            throw new RuntimeIOException(ex);
+                        }
+                    },
+                    b -> {
+                        Externalizable e = (Externalizable) newInstance(constructor);
+                        try {
+                            e.readExternal(b);
+                        } catch (IOException ex) {
+                            throw new RuntimeIOException(ex);
+                        } catch (ClassNotFoundException ex) {
+                            throw new IllegalStateException(ex);
+                        }
+                        return e;
+                    });
+        }
+        return new ElementCodec<Object>(e -> -1, (e, b) -> b.writeObject(e), Bytes::readObject);
+    }
+
+    /**
+     * @return number of bytes taken by {@link Bytes#writeStopBit(long)} for a non negative value
+     */
+    public static int weighStopBit(long value) {
+        int weight = 1;
+        while ((value >>>= 7) != 0) {
+            weight++;
+        }
+        return weight;
+    }
+
+    /**
+     * @return upper limit of the bytes taken by writeUTF\u0394, exact unless the length in chars and
+     *         in bytes take a different number of stop bit bytes
+     */
+    public static int weighUtf(CharSequence value) {
+        int length = value.length();
+        int utfLength = length;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == 0 || c > 0x7f) {
+                utfLength += c > 0x7ff ? 2 : 1;
+            }
+        }
+        return weighStopBit(utfLength) + utfLength;
+    }
+
+    public static int weighBytes(byte[] value) {
+        return weighStopBit(value.length) + value.length;
+    }
+
+    public static void writeBytes(Bytes bytes, byte[] value) {
+        bytes.writeStopBit(value.length);
+        bytes.write(value);
+    }
+
+    public static byte[] readBytes(Bytes bytes) {
+        byte[] value = new byte[(int) bytes.readStopBit()];
+        bytes.readFully(value);
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> ElementCodec<E> generated(Class<E> type) {
+        String name = QueueElementProcessor.codecName(type.getName().substring(type.getName().lastIndexOf('.') + 1));
+        String qualifiedName = type.getPackage() == null ? name : type.getPackage().getName() + '.' + name;
+        Object codec;
+        try {
+            codec = Class.forName(qualifiedName, true, type.getClassLoader()).getField("INSTANCE").get(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("no generated codec " + qualifiedName + " for " + type.getName()
+                    + ", is the annotation processor enabled?", e);
+        }
+        BytesSerializer<E> serializer = (BytesSerializer<E>) codec;
+        BytesDeserializer<E> deserializer = (BytesDeserializer<E>) codec;
+        return new ElementCodec<>(serializer::weigh, serializer::serialize, deserializer::deserialize);
+    }
+
+    private static Constructor<?> noArgConstructor(Class<?> type) {
+        try {
+            Constructor<?> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return constructor;
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException(type.getName() + " requires a no argument constructor", e);
+        }
+    }
+
+    private static Object newInstance(Constructor<?> constructor) {
+        try {
+            return constructor.newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("unable to create a " + constructor.getDeclaringClass().getName(), e);
+        }
+    }
+
+    @Override
+    public int weigh(E element) {
+        return weigher.applyAsInt(element);
+    }
+
+    @Override
+    public void serialize(E element, Bytes bytes) {
+        writer.accept(element, bytes);
+    }
+
+    @Override
+    public E deserialize(Bytes bytes) {
+        return reader.apply(bytes);
+    }
+}
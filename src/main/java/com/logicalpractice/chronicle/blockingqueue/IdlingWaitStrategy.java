@@ -0,0 +1,38 @@
+package com.logicalpractice.chronicle.blockingqueue;
+
+import java.util.function.Supplier;
+
+/**
+ * Base for wait strategies that poll the queue, idling between each attempt.
+ */
+public abstract class IdlingWaitStrategy implements WaitStrategy {
+
+    @Override
+    public <T> T waitFor(Supplier<T> attempt, long deadline) throws InterruptedException {
+        int counter = 0;
+        T result;
+        while ((result = attempt.get()) == null) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            long remaining = WaitStrategy.remaining(deadline);
+            if (remaining <= 0) {
+                return null;
+            }
+            idle(counter, remaining);
+            if (counter < Integer.MAX_VALUE) {
+                counter++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Idle between two attempts.
+     *
+     * @param counter number of previous failed attempts for the current wait, starting at zero
+     * @param remaining nanoseconds remaining until the deadline, implementations should not idle
+     *                  for longer than this
+     */
+    protected abstract void idle(int counter, long remaining);
+}
@@ -0,0 +1,106 @@
+package com.logicalpractice.chronicle.blockingqueue;
+
+import net.openhft.lang.io.Bytes;
+
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Base for queues of a primitive type written as fixed width excerpts, built on a
+ * ChronicleBlockingQueue. Values pass through as the bits of a long, held by a per thread slot, so
+ * subclasses offer, poll and take them without boxing or allocating.
+ */
+abstract class PrimitiveBlockingQueue<T> implements AutoCloseable {
+
+    private final ChronicleBlockingQueue<T> queue;
+    private final int weight;
+    private final ThreadLocal<Slot> slots = ThreadLocal.withInitial(Slot::new);
+
+    /**
+     * @param builder configuration of the underlying queue, its serializer and deserializer are replaced
+     * @param weight number of bytes written for each value
+     * @param deserializer reads a boxed value, for {@link #asQueue()}
+     */
+    PrimitiveBlockingQueue(ChronicleBlockingQueue.Builder<T> builder, int weight, BytesDeserializer<T> deserializer) {
+        this.weight = weight;
+        this.queue = builder.clone()
+                .serializer(new BytesSerializer<T>() {
+                    @Override
+                    public int weigh(T element) {
+                        return weight;
+                    }
+
+                    @Override
+                    public void serialize(T element, Bytes bytes) {
+                        writeBits(bytes, bits(element));
+                    }
+                })
+                .deserializer(deserializer)
+                .build();
+    }
+
+    abstract long bits(T element);
+
+    abstract void writeBits(Bytes bytes, long bits);
+
+    abstract long readBits(Bytes bytes);
+
+    /**
+     * @return false if the queue is full
+     */
+    final boolean offerBits(long bits) {
+        Slot slot = slots.get();
+        slot.bits = bits;
+        return queue.offerBytes(weight, slot);
+    }
+
+    /**
+     * @return the bits of the head of the queue or bitsIfEmpty if the queue is empty
+     */
+    final long pollBits(long bitsIfEmpty) {
+        Slot slot = slots.get();
+        return queue.poll(slot) ? slot.bits : bitsIfEmpty;
+    }
+
+    /**
+     * @return the bits of the head of the queue, waiting for one if the queue is empty
+     */
+    final long takeBits() throws InterruptedException {
+        Slot slot = slots.get();
+        queue.take(slot);
+        return slot.bits;
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    public boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    /**
+     * @return the underlying queue, boxing the values
+     */
+    public BlockingQueue<T> asQueue() {
+        return queue;
+    }
+
+    @Override
+    public void close() throws Exception {
+        queue.close();
+    }
+
+    private final class Slot implements BytesWriter, BytesConsumer {
+        private long bits;
+
+        @Override
+        public void write(Bytes bytes) {
+            writeBits(bytes, bits);
+        }
+
+        @Override
+        public void accept(Bytes bytes) {
+            bits = readBits(bytes);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.logicalpractice.chronicle.blockingqueue;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a class for which {@link QueueElementProcessor} generates a reflection free
+ * serializer and deserializer, named {@code <Class>Codec} in the same package.
+ *
+ * <p>Every non static, non transient field declared by the class is written in declaration order.
+ * Fields may be primitives, boxed primitives, Strings, byte arrays, enums or other QueueElement
+ * types, and must be non private or have a getter and setter. The class needs a non private no
+ * argument constructor. {@link ChronicleBlockingQueue.Builder#elementType(Class)} picks up the
+ * generated codec.</p>
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface QueueElement {
+}
@@ -0,0 +1,388 @@
+package com.logicalpractice.chronicle.blockingqueue;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generates a {@code <Class>Codec} serializer and deserializer for each class annotated with
+ * {@link QueueElement}, see there for the supported fields.
+ *
+ * <p>Fixed width fields are weighed exactly, each non primitive field is preceded by a presence
+ * byte so that nulls round trip. Registered as a service, so it runs whenever this library is on
+ * the compile classpath.</p>
+ */
+@SupportedAnnotationTypes("com.logicalpractice.chronicle.blockingqueue.QueueElement")
+public class QueueElementProcessor extends AbstractProcessor {
+
+    private static final String UTF = "UTF\\u0394";
+
+    /**
+     * @param binarySimpleName class name without its package, nested classes separated by '$'
+     * @return simple name of the generated codec
+     */
+    static String codecName(String binarySimpleName) {
+        return binarySimpleName.replace('$', '_') + "Codec";
+    }
+
+    /**
+     * Whatever the compiler supports, the generated code only uses Java 8 constructs.
+     */
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(QueueElement.class)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                error(element, "@QueueElement is only supported on classes");
+                continue;
+            }
+            try {
+                generate((TypeElement) element);
+            } catch (InvalidElementException e) {
+                error(e.element, e.getMessage());
+            } catch (IOException e) {
+                error(element, "unable to write codec: " + e);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the Generated annotation available to the compilation, it moved package in Java 9 and
+     *         isn't available at all without the javax.annotation module, or null
+     */
+    private String generatedAnnotation() {
+        for (String name : new String[] {"javax.annotation.processing.Generated", "javax.annotation.Generated"}) {
+            if (processingEnv.getElementUtils().getTypeElement(name) != null) {
+                return name;
+            }
+        }
+        return null;
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private void generate(TypeElement type) throws IOException {
+        if (type.getNestingKind().isNested() && !type.getModifiers().contains(Modifier.STATIC)) {
+            throw new InvalidElementException(type, "@QueueElement nested classes must be static");
+        }
+        boolean hasConstructor = ElementFilter.constructorsIn(type.getEnclosedElements()).stream()
+                .anyMatch(c -> c.getParameters().isEmpty() && !c.getModifiers().contains(Modifier.PRIVATE));
+        if (!hasConstructor) {
+            throw new InvalidElementException(type, "@QueueElement requires a non private no argument constructor");
+        }
+
+        List<Field> fields = new ArrayList<>();
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            Set<Modifier> modifiers = field.getModifiers();
+            if (!modifiers.contains(Modifier.STATIC) && !modifiers.contains(Modifier.TRANSIENT)) {
+                fields.add(new Field(type, field, fields.size()));
+            }
+        }
+
+        String packageName = packageOf(type);
+        String codecName = codecName(type);
+        String typeName = type.getQualifiedName().toString();
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        String generated = generatedAnnotation();
+        if (generated != null) {
+            source.append('@').append(generated).append("(\"").append(getClass().getName()).append("\")\n");
+        }
+        source.append("public final class ").append(codecName).append(" implements ")
+                .append("com.logicalpractice.chronicle.blockingqueue.BytesSerializer<").append(typeName).append(">, ")
+                .append("com.logicalpractice.chronicle.blockingqueue.BytesDeserializer<").append(typeName).append("> {\n\n")
+                .append("    public static final ").append(codecName).append(" INSTANCE = new ").append(codecName).append("();\n\n");
+        for (Field field : fields) {
+            if (field.kind == Kind.ENUM) {
+                source.append("    private static final ").append(field.type).append("[] ").append(field.local())
+                        .append("_VALUES = ").append(field.type).append(".values();\n\n");
+            }
+        }
+
+        source.append("    @Override\n")
+                .append("    public int weigh(").append(typeName).append(" element) {\n")
+                .append("        int weight = 0;\n");
+        for (Field field : fields) {
+            if (field.kind.nullable()) {
+                source.append("        weight += 1;\n")
+                        .append("        ").append(field.type).append(' ').append(field.local()).append(" = ").append(field.get()).append(";\n")
+                        .append("        if (").append(field.local()).append(" != null) {\n")
+                        .append("            weight += ").append(field.weight()).append(";\n")
+                        .append("        }\n");
+            } else {
+                source.append("        weight += ").append(field.weight()).append(";\n");
+            }
+        }
+        source.append("        return weight;\n")
+                .append("    }\n\n");
+
+        source.append("    @Override\n")
+                .append("    public void serialize(").append(typeName).append(" element, net.openhft.lang.io.Bytes bytes) {\n");
+        for (Field field : fields) {
+            if (field.kind.nullable()) {
+                source.append("        ").append(field.type).append(' ').append(field.local()).append(" = ").append(field.get()).append(";\n")
+                        .append("        bytes.writeBoolean(").append(field.local()).append(" != null);\n")
+                        .append("        if (").append(field.local()).append(" != null) {\n")
+                        .append("            ").append(field.write()).append('\n')
+                        .append("        }\n");
+            } else {
+                source.append("        ").append(field.write()).append('\n');
+            }
+        }
+        source.append("    }\n\n");
+
+        source.append("    @Override\n")
+                .append("    public ").append(typeName).append(" deserialize(net.openhft.lang.io.Bytes bytes) {\n")
+                .append("        ").append(typeName).append(" element = new ").append(typeName).append("();\n");
+        for (Field field : fields) {
+            if (field.kind.nullable()) {
+                source.append("        ").append(field.set("bytes.readBoolean() ? " + field.read() + " : null")).append('\n');
+            } else {
+                source.append("        ").append(field.set(field.read())).append('\n');
+            }
+        }
+        source.append("        return element;\n")
+                .append("    }\n")
+                .append("}\n");
+
+        String qualifiedCodecName = packageName.isEmpty() ? codecName : packageName + '.' + codecName;
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedCodecName, type).openWriter()) {
+            writer.write(source.toString());
+        }
+    }
+
+    private String packageOf(TypeElement type) {
+        PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(type);
+        return packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+    }
+
+    private String codecName(TypeElement type) {
+        String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        return codecName(binaryName.substring(binaryName.lastIndexOf('.') + 1));
+    }
+
+    private enum Kind {
+        PRIMITIVE, BOXED, STRING, BYTES, ENUM, ELEMENT;
+
+        boolean nullable() {
+            return this != PRIMITIVE;
+        }
+    }
+
+    private final class Field {
+        private final TypeElement owner;
+        private final VariableElement field;
+        private final int index;
+        private final String type;
+        private final Kind kind;
+        private final String primitive; // name of the Bytes read/write method suffix for primitives
+
+        Field(TypeElement owner, VariableElement field, int index) {
+            this.owner = owner;
+            this.field = field;
+            this.index = index;
+            TypeMirror mirror = field.asType();
+            this.type = mirror.toString();
+            if (mirror.getKind().isPrimitive()) {
+                kind = Kind.PRIMITIVE;
+                primitive = primitiveName(mirror.getKind());
+            } else if (mirror.getKind() == TypeKind.ARRAY
+                    && ((ArrayType) mirror).getComponentType().getKind() == TypeKind.BYTE) {
+                kind = Kind.BYTES;
+                primitive = null;
+            } else if (mirror.getKind() == TypeKind.DECLARED) {
+                TypeMirror unboxed = unboxed(mirror);
+                Element element = ((DeclaredType) mirror).asElement();
+                if (unboxed != null) {
+                    kind = Kind.BOXED;
+                    primitive = primitiveName(unboxed.getKind());
+                } else if (type.equals("java.lang.String")) {
+                    kind = Kind.STRING;
+                    primitive = null;
+                } else if (element.getKind() == ElementKind.ENUM) {
+                    kind = Kind.ENUM;
+                    primitive = null;
+                } else if (element.getAnnotation(QueueElement.class) != null) {
+                    kind = Kind.ELEMENT;
+                    primitive = null;
+                } else {
+                    throw new InvalidElementException(field, "unsupported @QueueElement field type " + type);
+                }
+            } else {
+                throw new InvalidElementException(field, "unsupported @QueueElement field type " + type);
+            }
+        }
+
+        private TypeMirror unboxed(TypeMirror mirror) {
+            try {
+                return processingEnv.getTypeUtils().unboxedType(mirror);
+            } catch (IllegalArgumentException notBoxed) {
+                return null;
+            }
+        }
+
+        private String primitiveName(TypeKind kind) {
+            String name = kind.name().toLowerCase();
+            return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        }
+
+        String local() {
+            return "field" + index;
+        }
+
+        private String name() {
+            return field.getSimpleName().toString();
+        }
+
+        private String accessor(String prefix) {
+            return prefix + Character.toUpperCase(name().charAt(0)) + name().substring(1);
+        }
+
+        private ExecutableElement method(String name, int parameters) {
+            for (ExecutableElement method : ElementFilter.methodsIn(owner.getEnclosedElements())) {
+                if (method.getSimpleName().contentEquals(name)
+                        && method.getParameters().size() == parameters
+                        && !method.getModifiers().contains(Modifier.PRIVATE)
+                        && !method.getModifiers().contains(Modifier.STATIC)) {
+                    return method;
+                }
+            }
+            return null;
+        }
+
+        String get() {
+            if (!field.getModifiers().contains(Modifier.PRIVATE)) {
+                return "element." + name();
+            }
+            for (String prefix : new String[]{"get", "is"}) {
+                if (method(accessor(prefix), 0) != null) {
+                    return "element." + accessor(prefix) + "()";
+                }
+            }
+            throw new InvalidElementException(field, "private @QueueElement field requires a getter");
+        }
+
+        String set(String value) {
+            Set<Modifier> modifiers = field.getModifiers();
+            if (!modifiers.contains(Modifier.PRIVATE) && !modifiers.contains(Modifier.FINAL)) {
+                return "element." + name() + " = " + value + ";";
+            }
+            if (method(accessor("set"), 1) != null) {
+                return "element." + accessor("set") + "(" + value + ");";
+            }
+            throw new InvalidElementException(field, "private or final @QueueElement field requires a setter");
+        }
+
+        private String codec() {
+            TypeElement element = (TypeElement) ((DeclaredType) field.asType()).asElement();
+            String packageName = packageOf(element);
+            return (packageName.isEmpty() ? "" : packageName + '.') + codecName(element) + ".INSTANCE";
+        }
+
+        /**
+         * @return expression for the weight of the value, for nullable kinds the value is in local()
+         */
+        String weight() {
+            switch (kind) {
+                case PRIMITIVE:
+                case BOXED:
+                    return Integer.toString(width());
+                case STRING:
+                    return "com.logicalpractice.chronicle.blockingqueue.ElementCodec.weighUtf(" + local() + ")";
+                case BYTES:
+                    return "com.logicalpractice.chronicle.blockingqueue.ElementCodec.weighBytes(" + local() + ")";
+                case ENUM:
+                    return "com.logicalpractice.chronicle.blockingqueue.ElementCodec.weighStopBit(" + local() + ".ordinal())";
+                default:
+                    return codec() + ".weigh(" + local() + ")";
+            }
+        }
+
+        String write() {
+            switch (kind) {
+                case PRIMITIVE:
+                    return "bytes.write" + primitive + "(" + get() + ");";
+                case BOXED:
+                    return "bytes.write" + primitive + "(" + local() + ");";
+                case STRING:
+                    return "bytes.write" + UTF + "(" + local() + ");";
+                case BYTES:
+                    return "com.logicalpractice.chronicle.blockingqueue.ElementCodec.writeBytes(bytes, " + local() + ");";
+                case ENUM:
+                    return "bytes.writeStopBit(" + local() + ".ordinal());";
+                default:
+                    return codec() + ".serialize(" + local() + ", bytes);";
+            }
+        }
+
+        String read() {
+            switch (kind) {
+                case PRIMITIVE:
+                    return "bytes.read" + primitive + "()";
+                case BOXED:
+                    return type + ".valueOf(bytes.read" + primitive + "())";
+                case STRING:
+                    return "bytes.read" + UTF + "()";
+                case BYTES:
+                    return "com.logicalpractice.chronicle.blockingqueue.ElementCodec.readBytes(bytes)";
+                case ENUM:
+                    return local() + "_VALUES[(int) bytes.readStopBit()]";
+                default:
+                    return codec() + ".deserialize(bytes)";
+            }
+        }
+
+        private int width() {
+            switch (primitive) {
+                case "Long":
+                case "Double":
+                    return 8;
+                case "Int":
+                case "Float":
+                    return 4;
+                case "Short":
+                case "Char":
+                    return 2;
+                default:
+                    return 1; // Byte and Boolean
+            }
+        }
+    }
+
+    private static final class InvalidElementException extends RuntimeException {
+        private final Element element;
+
+        InvalidElementException(Element element, String message) {
+            super(message);
+            this.element = element;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.logicalpractice.chronicle.blockingqueue;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Waits on the published write sequence of a {@link ChronicleSignal}, noticing appends made by
+ * any process sharing the queue directory.
+ *
+ * <p>A thread can't be unparked from another process, so waiting threads watch the sequence
+ * adaptively: spinning, then yielding, then parking for increasing periods up to maxParkNanos.
+ * Threads waiting in the same process as the signalling thread are unparked directly.</p>
+ */
+public class SharedSignalWaitStrategy implements WaitStrategy {
+
+    private final ChronicleSignal signal;
+    private final Queue<Thread> localWaiters = new ConcurrentLinkedQueue<>();
+    private final int spins;
+    private final int yields;
+    private final long maxParkNanos;
+
+    public SharedSignalWaitStrategy(ChronicleSignal signal) {
+        this(signal, 100, 10, TimeUnit.MICROSECONDS.toNanos(100));
+    }
+
+    /**
+     * @param signal required shared control word
+     * @param spins number of times to spin checking the sequence before yielding
+     * @param yields number of times to yield checking the sequence before parking
+     * @param maxParkNanos upper limit of the park period, bounds the latency of noticing an
+     *                     append from another process
+     */
+    public SharedSignalWaitStrategy(ChronicleSignal signal, int spins, int yields, long maxParkNanos) {
+        if (signal == null) {
+            throw new IllegalArgumentException("signal is required");
+        }
+        if (spins < 0 || yields < 0 || maxParkNanos <= 0) {
+            throw new IllegalArgumentException("invalid spins:" + spins + " yields:" + yields
+                    + " maxParkNanos:" + maxParkNanos);
+        }
+        this.signal = signal;
+        this.spins = spins;
+        this.yields = yields;
+        this.maxParkNanos = maxParkNanos;
+    }
+
+    @Override
+    public <T> T waitFor(Supplier<T> attempt, long deadline) throws InterruptedException {
+        Thread current = Thread.currentThread();
+        localWaiters.add(current);
+        try {
+            T result;
+            while (true) {
+                int seen = signal.sequence();
+                if ((result = attempt.get()) != null) {
+                    return result;
+                }
+                if (!awaitChange(seen, deadline)) {
+                    return null;
+                }
+            }
+        } finally {
+            localWaiters.remove(current);
+        }
+    }
+
+    private boolean awaitChange(int seen, long deadline) throws InterruptedException {
+        long park = 1;
+        for (int counter = 0; signal.sequence() == seen; counter++) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            long remaining = WaitStrategy.remaining(deadline);
+            if (remaining <= 0) {
+                return false;
+            }
+            if (counter < spins) {
+                continue;
+            }
+            if (counter < spins + yields) {
+                Thread.yield();
+                continue;
+            }
+            LockSupport.parkNanos(this, Math.min(park, remaining));
+            park = Math.min(park << 1, maxParkNanos);
+        }
+        return true;
+    }
+
+    @Override
+    public void signalAll() {
+        signal.publish(); // full fence, see BlockingWaitStrategy
+        if (!localWaiters.isEmpty()) {
+            for (Thread waiter : localWaiters) {
+                LockSupport.unpark(waiter);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SharedSignalWaitStrategy{" +
+                "spins=" + spins +
+                ", yields=" + yields +
+                ", maxParkNanos=" + maxParkNanos +
+                '}';
+    }
+}
@@ -0,0 +1,190 @@
+package com.logicalpractice.chronicle.blockingqueue;
+
+import net.openhft.chronicle.Chronicle;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Reference counted cache of open slab chronicles, shared by the appender, tailers and iterators of
+ * a queue so that moving between slabs doesn't re-map files that are already open.
+ *
+ * <p>A chronicle is closed once it is unreferenced and more than maxIdle other unreferenced slabs
+ * are open, least recently used first. An evicted chronicle is closed as soon as it is unreferenced.
+ * Chronicles are opened outside the cache's lock, so creating and mapping a new slab doesn't hold up
+ * acquiring and releasing the others. Acquiring a slab that is being opened waits for it.</p>
+ */
+public class SlabCache implements Closeable {
+
+    private final IntFunction<Chronicle> opener;
+    private final int maxIdle;
+
+    // in access order, so iteration finds the least recently used first
+    private final LinkedHashMap<Integer, Entry> bySlab = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Chronicle, Entry> byChronicle = new IdentityHashMap<>();
+    private int idle = 0;
+    private boolean closed = false;
+
+    public SlabCache(IntFunction<Chronicle> opener, int maxIdle) {
+        this.opener = opener;
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * @return the open chronicle for the slab, to be released once finished with
+     */
+    public Chronicle acquire(int slab) {
+        return acquire(slab, () -> opener.apply(slab));
+    }
+
+    /**
+     * @param ifAbsent opens the slab if it isn't already open, called without holding the lock
+     * @return the open chronicle for the slab, to be released once finished with
+     */
+    public Chronicle acquire(int slab, Supplier<Chronicle> ifAbsent) {
+        Entry entry;
+        boolean opening;
+        synchronized (this) {
+            entry = bySlab.get(slab);
+            opening = entry == null;
+            if (opening) {
+                entry = new Entry();
+                bySlab.put(slab, entry);
+            } else if (entry.references == 0) {
+                idle--;
+            }
+            entry.references++;
+        }
+        return opening ? open(slab, entry, ifAbsent) : awaitOpened(slab, entry);
+    }
+
+    private Chronicle open(int slab, Entry entry, Supplier<Chronicle> ifAbsent) {
+        Chronicle chronicle;
+        try {
+            chronicle = ifAbsent.get();
+        } catch (RuntimeException | Error e) {
+            synchronized (this) {
+                bySlab.remove(slab, entry);
+                entry.failure = e;
+                notifyAll();
+            }
+            throw e;
+        }
+        synchronized (this) {
+            if (!closed) {
+                entry.chronicle = chronicle;
+                byChronicle.put(chronicle, entry);
+                notifyAll();
+                return chronicle;
+            }
+            entry.failure = new IllegalStateException("slab cache closed");
+            notifyAll();
+        }
+        closeQuietly(chronicle);
+        throw new IllegalStateException("slab cache closed");
+    }
+
+    private synchronized Chronicle awaitOpened(int slab, Entry entry) {
+        boolean interrupted = false;
+        try {
+            while (entry.chronicle == null && entry.failure == null) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (entry.failure != null) {
+            throw new IllegalStateException("opening slab " + slab + " failed", entry.failure);
+        }
+        return entry.chronicle;
+    }
+
+    public synchronized void release(Chronicle chronicle) {
+        Entry entry = byChronicle.get(chronicle);
+        if (entry == null) {
+            return; // already closed along with the cache
+        }
+        if (--entry.references > 0) {
+            return;
+        }
+        if (entry.evicted) {
+            close(entry);
+            return;
+        }
+        idle++;
+        Iterator<Entry> lru = bySlab.values().iterator();
+        while (idle > maxIdle && lru.hasNext()) {
+            Entry candidate = lru.next();
+            if (candidate.references == 0) {
+                lru.remove();
+                idle--;
+                close(candidate);
+            }
+        }
+    }
+
+    /**
+     * Stop handing out the slab's chronicle, once it's deleted or must be reopened. Subsequent
+     * acquires open it afresh.
+     */
+    public synchronized void evict(int slab) {
+        Entry entry = bySlab.remove(slab);
+        if (entry == null) {
+            return;
+        }
+        if (entry.references == 0) {
+            idle--;
+            close(entry);
+        } else {
+            entry.evicted = true;
+        }
+    }
+
+    /**
+     * Close every cached chronicle, whether or not it is still referenced.
+     */
+    public synchronized void close() {
+        closed = true;
+        for (Entry entry : byChronicle.values().toArray(new Entry[0])) {
+            close(entry);
+        }
+        bySlab.clear();
+        idle = 0;
+    }
+
+    private static void closeQuietly(Chronicle chronicle) {
+        try {
+            chronicle.close();
+        } catch (IOException ignored) {
+            // the cache closed while it was being opened, so nothing could use it
+        }
+    }
+
+    private void close(Entry entry) {
+        byChronicle.remove(entry.chronicle);
+        try {
+            entry.chronicle.close();
+        } catch (IOException e) {
+            throw new RuntimeIOException(e);
+        }
+    }
+
+    private static final class Entry {
+        private Chronicle chronicle; // null while being opened
+        private Throwable failure; // of opening
+        private int references = 0;
+        private boolean evicted = false;
+    }
+}
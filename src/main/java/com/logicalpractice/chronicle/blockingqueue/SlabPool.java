@@ -0,0 +1,77 @@
+package com.logicalpractice.chronicle.blockingqueue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Pool of drained slab data files, reused for new slabs rather than deleting and recreating them.
+ *
+ * <p>A released slab's index file is deleted, which is enough to reset the chronicle to empty, and
+ * its data file is renamed into one of maxSize slots named {@code <name>-recycled-<slot>.data}.
+ * Acquiring renames a pooled data file into place for a new slab, so it keeps its allocated disk
+ * blocks and warm pages. When the pool is full, or maxSize is zero, released slabs are deleted.</p>
+ *
+ * <p>The index is deleted rather than truncated so that readers still mapping the drained slab
+ * aren't faulted, though they may see its data overwritten once it is reused. Renames replace
+ * their target, so the pool must not be shared between processes.</p>
+ */
+public class SlabPool {
+
+    private final File storageDirectory;
+    private final String name;
+    private final int maxSize;
+
+    public SlabPool(File storageDirectory, String name, int maxSize) {
+        this.storageDirectory = storageDirectory;
+        this.name = name;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Pool or delete the files of a drained slab. Files already deleted are ignored, a consumer
+     * that opened the slab while it was being deleted removes any it created again.
+     */
+    public void release(File indexFile, File dataFile) throws IOException {
+        Files.deleteIfExists(indexFile.toPath());
+        for (int slot = 0; slot < maxSize; slot++) {
+            File pooled = pooled(slot);
+            if (!pooled.exists()) {
+                try {
+                    Files.move(dataFile.toPath(), pooled.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                } catch (NoSuchFileException ignored) {
+                    // already deleted
+                }
+                return;
+            }
+        }
+        Files.deleteIfExists(dataFile.toPath());
+    }
+
+    /**
+     * Move a pooled data file into place for a new slab.
+     *
+     * @return false if the pool is empty or the slab's data file already exists, the slab is then
+     *         created from scratch by the chronicle
+     */
+    public boolean acquire(File dataFile) throws IOException {
+        if (dataFile.exists()) {
+            return false;
+        }
+        for (int slot = 0; slot < maxSize; slot++) {
+            try {
+                Files.move(pooled(slot).toPath(), dataFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                return true;
+            } catch (NoSuchFileException ignored) {
+                // an empty slot, try the next
+            }
+        }
+        return false;
+    }
+
+    private File pooled(int slot) {
+        return new File(storageDirectory, name + "-recycled-" + slot + ".data");
+    }
+}
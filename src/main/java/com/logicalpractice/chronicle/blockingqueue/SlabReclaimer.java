@@ -0,0 +1,90 @@
+package com.logicalpractice.chronicle.blockingqueue;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Releases the files of drained slabs to a {@link SlabPool} on a background thread, keeping file
+ * system latency off the consumer.
+ *
+ * <p>At most maxPending slabs wait for the background thread, beyond that the calling thread
+ * releases the files itself so that disk usage stays bounded. A release that fails is counted
+ * rather than thrown, as there is no caller to report it to.</p>
+ */
+public class SlabReclaimer implements Closeable {
+
+    private final SlabPool slabPool;
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong reclaimed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public SlabReclaimer(String name, int maxPending, SlabPool slabPool) {
+        this.slabPool = slabPool;
+        executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxPending),
+                new ThreadFactoryBuilder().setNameFormat(name + "-slab-reclaimer").setDaemon(true).build(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Release the files of a single slab.
+     */
+    public void reclaim(File indexFile, File dataFile) {
+        executor.execute(() -> {
+            try {
+                slabPool.release(indexFile, dataFile);
+                reclaimed.incrementAndGet();
+            } catch (IOException e) {
+                failed.incrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * @return number of slabs waiting to be released
+     */
+    public int pending() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return number of slabs released
+     */
+    public long reclaimed() {
+        return reclaimed.get();
+    }
+
+    /**
+     * @return number of slabs that could not be released
+     */
+    public long failed() {
+        return failed.get();
+    }
+
+    /**
+     * Finish the pending releases and stop the background thread.
+     */
+    public void close() {
+        executor.shutdown();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.logicalpractice.chronicle.blockingqueue;
+
+/**
+ * Spins for a number of attempts then yields the processor between each subsequent attempt.
+ */
+public class SpinThenYieldWaitStrategy extends IdlingWaitStrategy {
+
+    private final int spins;
+
+    public SpinThenYieldWaitStrategy() {
+        this(100);
+    }
+
+    /**
+     * @param spins number of attempts to make before starting to yield
+     */
+    public SpinThenYieldWaitStrategy(int spins) {
+        if (spins < 0) {
+            throw new IllegalArgumentException("spins must not be negative");
+        }
+        this.spins = spins;
+    }
+
+    @Override
+    protected void idle(int counter, long remaining) {
+        if (counter >= spins) {
+            Thread.yield();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SpinThenYieldWaitStrategy{spins=" + spins + '}';
+    }
+}
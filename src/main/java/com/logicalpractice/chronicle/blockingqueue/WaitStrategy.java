@@ -0,0 +1,65 @@
+package com.logicalpractice.chronicle.blockingqueue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Determines how the blocking operations of the ChronicleBlockingQueue wait for the queue to change state.
+ *
+ * <p>Implementations trade the latency of noticing a change against the CPU burnt while waiting for it.
+ * {@link BusySpinWaitStrategy} has the lowest latency and consumes a full core per waiting thread,
+ * {@link BlockingWaitStrategy} consumes no CPU while waiting but relies on being signalled.</p>
+ */
+public interface WaitStrategy {
+
+    /**
+     * Deadline value indicating that the caller is prepared to wait forever.
+     */
+    long NO_DEADLINE = Long.MAX_VALUE;
+
+    /**
+     * Repeatedly make the given attempt until it succeeds or the deadline passes.
+     *
+     * @param attempt required non-blocking operation, returns null if unable to make progress
+     * @param deadline {@link System#nanoTime()} after which the wait is abandoned or {@link #NO_DEADLINE}
+     * @return the first non null result of attempt or null if the deadline has passed
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    <T> T waitFor(Supplier<T> attempt, long deadline) throws InterruptedException;
+
+    /**
+     * Notification that the queue has changed state, ie an element has been appended or capacity has
+     * been freed. Called by the queue on every such change so must be cheap when nothing is waiting.
+     */
+    default void signalAll() {
+    }
+
+    /**
+     * Calculate a deadline for the given timeout, saturating rather than overflowing.
+     *
+     * @param timeout time to wait
+     * @param unit unit of timeout
+     * @return deadline suitable for {@link #waitFor(Supplier, long)}
+     */
+    static long deadline(long timeout, TimeUnit unit) {
+        long nanos = unit.toNanos(timeout);
+        if (nanos >= NO_DEADLINE / 2) {
+            return NO_DEADLINE;
+        }
+        return System.nanoTime() + nanos;
+    }
+
+    /**
+     * Nanoseconds remaining until the given deadline.
+     *
+     * @param deadline deadline as returned by {@link #deadline(long, TimeUnit)}
+     * @return number of nanoseconds remaining, zero or negative once the deadline has passed and
+     *         {@link Long#MAX_VALUE} for {@link #NO_DEADLINE}
+     */
+    static long remaining(long deadline) {
+        if (deadline == NO_DEADLINE) {
+            return Long.MAX_VALUE;
+        }
+        return deadline - System.nanoTime();
+    }
+}
@@ -0,0 +1,68 @@
+package com.logicalpractice.chronicle.blockingqueue;
+
+/**
+ * Learns the serialized size of the elements of a queue, so that elements whose serializer can't
+ * weigh them can be written straight into the slab with a reservation covering most of them.
+ *
+ * <p>Sizes are recorded in a histogram of power of two buckets. Every RECALCULATE_EVERY records the
+ * estimate is moved to the upper bound of the bucket containing the configured percentile, and the
+ * counts are halved so that older sizes gradually fade. Not thread safe, it is only used by a
+ * single producer.</p>
+ */
+public class WeightEstimator {
+
+    private static final int RECALCULATE_EVERY = 1024;
+
+    private final double percentile;
+    private final int maxWeight;
+    private final long[] counts = new long[32]; // bucket i holds sizes in (2^(i-1), 2^i]
+
+    private long total = 0;
+    private int recorded = 0;
+    private int estimate = -1;
+
+    /**
+     * @param percentile proportion of the elements the estimate should cover, between 0 and 1
+     * @param maxWeight upper limit of the estimate
+     */
+    public WeightEstimator(double percentile, int maxWeight) {
+        this.percentile = percentile;
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * @return estimated weight or -1 until enough sizes have been recorded
+     */
+    public int estimate() {
+        return estimate;
+    }
+
+    public void record(long size) {
+        counts[bucket(size)]++;
+        total++;
+        if (++recorded == RECALCULATE_EVERY) {
+            recalculate();
+            recorded = 0;
+        }
+    }
+
+    private static int bucket(long size) {
+        return size <= 1 ? 0 : Math.min(64 - Long.numberOfLeadingZeros(size - 1), 31);
+    }
+
+    private void recalculate() {
+        long threshold = (long) Math.ceil(total * percentile);
+        long cumulative = 0;
+        int bucket = 0;
+        while (bucket < counts.length - 1 && (cumulative += counts[bucket]) < threshold) {
+            bucket++;
+        }
+        estimate = (int) Math.min(1L << bucket, maxWeight);
+
+        total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] >>= 1;
+            total += counts[i];
+        }
+    }
+}
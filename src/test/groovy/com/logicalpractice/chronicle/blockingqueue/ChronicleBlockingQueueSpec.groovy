@@ -13,6 +13,7 @@ import java.nio.file.Files
 import java.nio.file.Path
 import java.nio.file.SimpleFileVisitor
 import java.nio.file.attribute.BasicFileAttributes
+import java.util.concurrent.ArrayBlockingQueue
 import java.util.concurrent.Callable
 import java.util.concurrent.ExecutorService
 import java.util.concurrent.Executors
@@ -41,6 +42,30 @@ abstract class ChronicleBlockingQueueSpec extends Specification {
       builder.deserializer(args.deserializer)
     if ('serializer' in args)
       builder.serializer(args.serializer)
+    if ('waitStrategy' in args)
+      builder.waitStrategy(args.waitStrategy)
+    if ('sharedSignal' in args)
+      builder.sharedSignal(args.sharedSignal)
+    if ('multiProducer' in args)
+      builder.multiProducer(args.multiProducer)
+    if ('competingConsumers' in args)
+      builder.competingConsumers(args.competingConsumers)
+    if ('multiProcess' in args)
+      builder.multiProcess(args.multiProcess)
+    if ('preallocateSlabs' in args)
+      builder.preallocateSlabs(args.preallocateSlabs)
+    if ('maxPendingSlabDeletions' in args)
+      builder.maxPendingSlabDeletions(args.maxPendingSlabDeletions)
+    if ('slabPoolSize' in args)
+      builder.slabPoolSize(args.slabPoolSize)
+    if ('weightEstimatePercentile' in args)
+      builder.weightEstimatePercentile(args.weightEstimatePercentile)
+    if ('name' in args)
+      builder.name(args.name)
+    if ('messageCapacity' in args)
+      builder.messageCapacity(args.messageCapacity)
+    if ('chunkedMessages' in args)
+      builder.chunkedMessages(args.chunkedMessages)
 
     builder.build()
   }
@@ -182,6 +207,66 @@ abstract class ChronicleBlockingQueueSpec extends Specification {
     }
   }
 
+  static class TailerTracking extends ChronicleBlockingQueueSpec {
+
+    @AutoCleanup
+    ChronicleBlockingQueue testObject = standardQueue()
+
+    def "consecutive polls and peeks see every element once"() {
+      given:
+      testObject.addAll(1..1000) // spans several slabs
+
+      expect:
+      (1..1000).every { testObject.peek() == it && testObject.poll() == it }
+      testObject.poll() == null
+    }
+
+    def "a position moved by another instance is honoured"() {
+      given:
+      testObject.addAll(1..5)
+      testObject.poll()
+      def other = standardQueue()
+
+      when:
+      def fromOther = other.poll()
+
+      then:
+      fromOther == 2
+      testObject.poll() == 3
+
+      cleanup:
+      other?.close()
+    }
+
+    def "polling resumes after draining"() {
+      given:
+      testObject.addAll(1..10)
+
+      when:
+      testObject.drainTo([], 4)
+
+      then:
+      testObject.poll() == 5
+      testObject.drainTo([], 2) == 2
+      testObject.poll() == 8
+    }
+
+    def "an element the target collection refuses stays queued"() {
+      given:
+      testObject.addAll(1..10)
+      def target = new ArrayBlockingQueue(3)
+
+      when:
+      testObject.drainTo(target)
+
+      then:
+      thrown(IllegalStateException)
+      target.toList() == [1, 2, 3]
+      testObject.size() == 7
+      testObject.poll() == 4
+    }
+  }
+
   static class AppendToQueue extends ChronicleBlockingQueueSpec {
 
     @AutoCleanup
@@ -220,19 +305,84 @@ abstract class ChronicleBlockingQueueSpec extends Specification {
   }
 
   @Timeout(value = 5, unit = SECONDS)
+  static class BatchAppend extends ChronicleBlockingQueueSpec {
+
+    @AutoCleanup
+    ChronicleBlockingQueue testObject = standardQueue()
+
+    def "offerBatch appends every element in order"() {
+      when:
+      def accepted = testObject.offerBatch(1..1000)
+
+      then:
+      accepted == 1000
+      testObject.size() == 1000
+      (1..1000).every { testObject.poll() == it }
+      testObject.poll() == null
+    }
+
+    def "offerBatch stops at the first element that doesn't fit"() {
+      given:
+      def bounded = standardQueue(slabBlockSize: 1024, maxNumberOfSlabs: 3, name: 'bounded')
+
+      when:
+      def accepted = bounded.offerBatch(1..1000)
+
+      then:
+      accepted > 0
+      accepted < 1000
+      bounded.size() == accepted
+      (1..accepted).every { bounded.poll() == it }
+
+      cleanup:
+      bounded?.close()
+    }
+
+    def "addAll throws once the queue is full, keeping those appended"() {
+      given:
+      def bounded = standardQueue(slabBlockSize: 1024, maxNumberOfSlabs: 3, name: 'bounded')
+
+      when:
+      bounded.addAll(1..1000)
+
+      then:
+      thrown IllegalStateException
+      bounded.size() > 0
+      bounded.poll() == 1
+
+      cleanup:
+      bounded?.close()
+    }
+
+    def "multiProducer batches are appended under a single lock"() {
+      given:
+      def concurrent = standardQueue(multiProducer: true, name: 'concurrent')
+
+      when:
+      def accepted = concurrent.offerBatch(1..100)
+
+      then:
+      accepted == 100
+      (1..100).every { concurrent.poll() == it }
+
+      cleanup:
+      concurrent?.close()
+    }
+  }
+
   static class SlabFileManagement extends ChronicleBlockingQueueSpec {
     @AutoCleanup
     ChronicleBlockingQueue testObject = standardQueue(maxNumberOfSlabs:3)
 
     def "adding more than maxPerSlab results in additional slab files"() {
-      expect: "initial state is three files"
-      tempDir().list().length == 3
+      expect: "initial state is five files"
+      tempDir().list().length == 5
 
       when: 'fill the Q'
       while (testObject.offer("a message"));
 
       then:
-      tempDir().list().length == 2 * 3 + 1
+      tempDir().list().length == 2 * 3 + 3
     }
 
     def "removing elements should clean up defunct slabs"() {
@@ -241,19 +391,206 @@ abstract class ChronicleBlockingQueueSpec extends Specification {
       def size = testObject.size()
 
       expect:
-      tempDir().list().length == 2 * 3 + 1 // 2 files per slab, plus position file
+      tempDir().list().length == 2 * 3 + 3 // 2 files per slab, plus position, counters and manifest files
 
       when: 'remove half the elements'
       (size / 2).times { testObject.remove() }
 
       then: 'one pair of .data and .index files must be removed'
-      tempDir().list().length == 2 * 2 + 1 // one less pair of files
+      tempDir().list().length == 2 * 2 + 3 // one less pair of files
 
       when: 'empty the remaining elements'
       while ( testObject.poll() ) ;
 
-      then: 'only the live and position files remain'
-      tempDir().list().length == 2 + 1
+      then: 'only the live, position, counters and manifest files remain'
+      tempDir().list().length == 2 + 3
+    }
+  }
+
+  @Timeout(value = 5, unit = SECONDS)
+  static class SlabReclamation extends ChronicleBlockingQueueSpec {
+    @AutoCleanup
+    ChronicleBlockingQueue testObject = standardQueue(maxNumberOfSlabs: 3, maxPendingSlabDeletions: 4)
+
+    def "drained slabs are deleted in the background"() {
+      given: 'a full Q'
+      while (testObject.offer("a message"));
+
+      when: 'empty it'
+      while (testObject.poll());
+      while (testObject.pendingSlabDeletions() > 0 || tempDir().list().length > 2 + 3)
+        Thread.sleep(1)
+
+      then: 'only the live, position, counters and manifest files remain'
+      tempDir().list().length == 2 + 3
+      testObject.reclaimedSlabs() > 0
+      testObject.failedSlabDeletions() == 0
+    }
+
+    def "capacity is freed before the slab is deleted"() {
+      given: 'a full Q'
+      while (testObject.offer("a message"));
+      def size = testObject.size()
+
+      when: 'remove a slab worth'
+      (size / 2).times { testObject.remove() }
+
+      then:
+      testObject.offer("a message")
+    }
+  }
+
+  @Timeout(value = 5, unit = SECONDS)
+  static class SlabPooling extends ChronicleBlockingQueueSpec {
+    @AutoCleanup
+    ChronicleBlockingQueue testObject = standardQueue(maxNumberOfSlabs: 3, slabPoolSize: 1)
+
+    def "a drained slab's data file is kept for reuse"() {
+      given: 'a full Q'
+      while (testObject.offer("a message"));
+      def size = testObject.size()
+
+      when: 'remove a slab worth'
+      (size / 2).times { testObject.remove() }
+
+      then:
+      new File(tempDir(), 'chronicleblockingqueue-recycled-0.data').exists()
+      tempDir().list().length == 2 * 2 + 1 + 3
+
+      when: 'the next slab is created'
+      while (testObject.offer("a message"));
+
+      then: 'it reuses the pooled data file'
+      !new File(tempDir(), 'chronicleblockingqueue-recycled-0.data').exists()
+    }
+
+    def "elements written to reused slabs are read back in order"() {
+      when:
+      (1..5).each { round ->
+        testObject.addAll(1..300)
+        assert (1..300).every { testObject.poll() == it }
+      }
+
+      then:
+      testObject.poll() == null
+    }
+
+    def "can't be combined with multiProcess"() {
+      when:
+      standardQueue(slabPoolSize: 1, multiProcess: true)
+
+      then:
+      thrown(IllegalArgumentException)
+    }
+  }
+
+  @Timeout(value = 5, unit = SECONDS)
+  static class SlabPreallocation extends ChronicleBlockingQueueSpec {
+    @AutoCleanup
+    ChronicleBlockingQueue testObject = standardQueue(preallocateSlabs: true)
+
+    def "the slab after the current one is created in the background"() {
+      when:
+      while (!new File(tempDir(), 'chronicleblockingqueue-2.index').exists())
+        Thread.sleep(1)
+
+      then:
+      testObject.isEmpty()
+    }
+
+    def "rolls over onto the preallocated slabs"() {
+      when:
+      testObject.addAll(1..1000) // spans several slabs
+
+      then:
+      (1..1000).every { testObject.poll() == it }
+      testObject.poll() == null
+    }
+  }
+
+  static class Manifest extends ChronicleBlockingQueueSpec {
+
+    def "reopening continues from the slabs recorded in the manifest"() {
+      given:
+      def queue = standardQueue()
+      queue.addAll(1..1000) // spans several slabs
+      500.times { queue.poll() }
+      queue.close()
+
+      when:
+      def reopened = standardQueue()
+      reopened.addAll(1001..1010)
+
+      then:
+      (501..1010).every { reopened.poll() == it }
+      reopened.poll() == null
+
+      cleanup:
+      reopened?.close()
+    }
+
+    def "recovers the slabs of a queue written before the manifest existed"() {
+      given:
+      def queue = standardQueue()
+      queue.addAll(1..1000)
+      500.times { queue.poll() }
+      queue.close()
+      new File(tempDir(), 'chronicleblockingqueue.manifest').delete()
+
+      when:
+      def reopened = standardQueue()
+      reopened.add(1001)
+
+      then:
+      (501..1001).every { reopened.poll() == it }
+      reopened.poll() == null
+
+      cleanup:
+      reopened?.close()
+    }
+
+    def "a lock left by a dead holder times out naming it"() {
+      given:
+      def file = new File(tempDir(), 'locked.manifest')
+      def dead = new ChronicleManifest(file)
+      dead.lock(42L)
+      def manifest = new ChronicleManifest(file, MILLISECONDS.toNanos(50), false)
+
+      when:
+      manifest.lock(7L)
+
+      then:
+      def e = thrown(IllegalStateException)
+      e.message.contains('42')
+
+      cleanup:
+      dead?.close()
+      manifest?.close()
+    }
+
+    def "a lock left by a dead holder can be broken"() {
+      given:
+      def file = new File(tempDir(), 'locked.manifest')
+      def dead = new ChronicleManifest(file)
+      dead.lock(42L)
+      def manifest = new ChronicleManifest(file, MILLISECONDS.toNanos(50), true)
+
+      when:
+      manifest.lock(7L)
+
+      then:
+      manifest.lockHolder() == 7L
+
+      when:
+      dead.unlock(42L)
+
+      then:
+      thrown(IllegalMonitorStateException)
+
+      cleanup:
+      manifest?.unlock(7L)
+      dead?.close()
+      manifest?.close()
     }
   }
 
@@ -341,6 +678,93 @@ abstract class ChronicleBlockingQueueSpec extends Specification {
     }
   }
 
+  static class TwoPhaseConsumption extends ChronicleBlockingQueueSpec {
+
+    def deserialized = 0
+
+    @AutoCleanup
+    ChronicleBlockingQueue testObject = standardQueue(
+        deserializer: { bytes -> deserialized++; bytes.readObject() }
+    )
+
+    def "claim returns null when the queue is empty"() {
+      expect:
+      testObject.claim() == null
+    }
+
+    def "the position only moves once the claim is committed"() {
+      given:
+      testObject.addAll(1..3)
+
+      when:
+      def claim = testObject.claim()
+
+      then:
+      claim.element() == 1
+      testObject.size() == 3
+
+      when:
+      def committed = claim.commit()
+
+      then:
+      committed
+      testObject.size() == 2
+      testObject.poll() == 2
+    }
+
+    def "an uncommitted claim is claimed again"() {
+      given:
+      testObject.addAll(1..3)
+
+      expect:
+      testObject.claim().element() == 1
+      testObject.claim().element() == 1
+    }
+
+    def "a claim can only be committed once"() {
+      given:
+      testObject.addAll(1..3)
+      def claim = testObject.claim()
+
+      when:
+      claim.commit()
+
+      then:
+      !claim.commit()
+      testObject.size() == 2
+    }
+
+    def "a claim consumed by poll in the meantime fails to commit"() {
+      given:
+      testObject.addAll(1..3)
+      def claim = testObject.claim()
+      testObject.poll()
+
+      expect:
+      !claim.commit()
+      testObject.poll() == 2
+    }
+
+    def "each element is deserialized once, across slabs"() {
+      given:
+      testObject.addAll(1..1000) // spans several slabs
+      def consumed = []
+      def claim
+
+      when:
+      while ((claim = testObject.claim()) != null) {
+        consumed << claim.element()
+        assert claim.commit()
+      }
+
+      then:
+      consumed == (1..1000) as List
+      deserialized == 1000
+      testObject.empty
+      tempDir().listFiles().count { it.name.endsWith('.index') } == 1
+    }
+  }
+
   static class Size extends ChronicleBlockingQueueSpec {
     @AutoCleanup
     ChronicleBlockingQueue testObject = standardQueue()
@@ -363,41 +787,375 @@ abstract class ChronicleBlockingQueueSpec extends Specification {
     }
   }
 
+  static class Counters extends ChronicleBlockingQueueSpec {
+
+    def "size survives reopening the queue"() {
+      given:
+      def queue = standardQueue()
+      queue.addAll(1..10)
+      3.times { queue.poll() }
+      queue.close()
+
+      when:
+      def reopened = standardQueue()
+
+      then:
+      reopened.size() == 7
+      !reopened.empty
+
+      cleanup:
+      reopened?.close()
+    }
+
+    def "counts the elements of a queue written before the counters existed"() {
+      given:
+      def queue = standardQueue()
+      queue.addAll(1..10)
+      queue.poll()
+      queue.close()
+      new File(tempDir(), 'chronicleblockingqueue.counters').delete()
+
+      when:
+      def reopened = standardQueue()
+
+      then:
+      reopened.size() == 9
+
+      cleanup:
+      reopened?.close()
+    }
+
+    def "recounted elements keep their weight for remainingCapacity"() {
+      given:
+      def args = [maxNumberOfSlabs: 4, serializer: { val, bytes -> bytes.writeLong(val) },
+                  deserializer: { bytes -> bytes.readLong() }]
+      def queue = standardQueue(args)
+      queue.addAll(1..10)
+      queue.close()
+      new File(tempDir(), 'chronicleblockingqueue.counters').delete()
+
+      when:
+      def reopened = standardQueue(args)
+
+      then: 'three free slabs of 8KB at 8 bytes per element'
+      reopened.size() == 10
+      reopened.remainingCapacity() == 3 * 1024
+
+      cleanup:
+      reopened?.close()
+    }
+
+    def "remainingCapacity is unbounded without a slab limit"() {
+      given:
+      def queue = standardQueue()
+
+      expect:
+      queue.remainingCapacity() == Integer.MAX_VALUE
+
+      cleanup:
+      queue.close()
+    }
+
+    def "remainingCapacity is estimated from the average element size"() {
+      given:
+      def queue = standardQueue(maxNumberOfSlabs: 4, serializer: { val, bytes -> bytes.writeLong(val) },
+          deserializer: { bytes -> bytes.readLong() })
+      queue.addAll(1..10)
+
+      expect: 'three free slabs of 8KB at 8 bytes per element'
+      queue.remainingCapacity() == 3 * 1024
+
+      cleanup:
+      queue.close()
+    }
+  }
+
   @Timeout(value = 5, unit = SECONDS)
   static class Capacity extends ChronicleBlockingQueueSpec {
 
-    @AutoCleanup
-    ChronicleBlockingQueue testObject = standardQueue(slabBlockSize: 1024, maxNumberOfSlabs: 3)
+    @AutoCleanup
+    ChronicleBlockingQueue testObject = standardQueue(slabBlockSize: 1024, maxNumberOfSlabs: 3)
+
+    def "offer stops accepting entries when full"() {
+      given: "a full Q"
+      while (testObject.offer(1));
+
+      expect:
+      ! testObject.offer(666)
+    }
+
+    def "add must throw when full"() {
+      given: "a full Q"
+      while (testObject.offer(1));
+
+      when:
+      testObject.add(666)
+
+      then:
+      thrown IllegalStateException
+    }
+
+    def "a full queue keeps rejecting until a slab is freed"() {
+      given: "a full Q"
+      while (testObject.offer(1));
+      def size = testObject.size()
+
+      expect:
+      (1..1000).every { !testObject.offer(666) }
+      testObject.size() == size
+
+      when:
+      (size / 2).times { testObject.remove() }
+
+      then:
+      testObject.offer(666)
+      testObject.offer(667)
+    }
+
+    def "offer must begin accepting once a slab worths has been removed"() {
+      given: "a full Q"
+      while (testObject.offer(1));
+      def size = testObject.size()
+
+      when:
+      (size / 2).times { testObject.remove() }
+
+      then:
+      testObject.offer(666)
+    }
+  }
+
+  static class ExactReservation extends ChronicleBlockingQueueSpec {
+    @AutoCleanup
+    ChronicleBlockingQueue testObject = standardQueue()
+
+    def "elements of unknown weight reserve only their serialized size"() {
+      when:
+      testObject.addAll(1..10)
+
+      then:
+      testObject.reservationBytesSaved() > 10 * (128 * 1024 - 100)
+      (1..10).every { testObject.poll() == it }
+    }
+
+    def "elements of known weight are written directly"() {
+      given:
+      def known = standardQueue(
+          serializer: [weigh: { 4 }, serialize: { val, bytes -> bytes.writeInt(val) }] as BytesSerializer,
+          deserializer: { bytes -> bytes.readInt() }
+      )
+
+      when:
+      known.addAll(1..10)
+
+      then:
+      known.reservationBytesSaved() == 0
+      (1..10).every { known.poll() == it }
+
+      cleanup:
+      known?.close()
+    }
+  }
+
+  static class EstimatedReservation extends ChronicleBlockingQueueSpec {
+    @AutoCleanup
+    ChronicleBlockingQueue testObject = standardQueue(
+        slabBlockSize: 1024 * 1024,
+        weightEstimatePercentile: 0.99d,
+        serializer: { val, bytes -> bytes.writeUTF\u0394(val) },
+        deserializer: { bytes -> bytes.readUTF\u0394() }
+    )
+
+    def "elements larger than the estimate are still appended"() {
+      given:
+      def values = (1..3000).collect { it % 500 == 0 ? 'x' * 2000 : "value $it".toString() }
+
+      when:
+      values.each { testObject.add(it) }
+
+      then:
+      testObject.estimateOverflows() > 0
+      values.every { testObject.poll() == it }
+      testObject.poll() == null
+    }
+
+    def "serializer failures are not mistaken for overflowing the estimate"() {
+      given:
+      def failing = standardQueue(
+          slabBlockSize: 1024 * 1024,
+          weightEstimatePercentile: 0.99d,
+          name: 'failing',
+          serializer: { val, bytes ->
+            if (val == 'boom')
+              throw new IllegalStateException('boom')
+            bytes.writeUTF\u0394(val)
+          },
+          deserializer: { bytes -> bytes.readUTF\u0394() }
+      )
+      def values = (1..3000).collect { "value $it".toString() }
+      values.each { failing.add(it) }
+
+      when:
+      failing.offer('boom')
+
+      then:
+      def e = thrown(IllegalStateException)
+      e.message == 'boom'
+      failing.estimateOverflows() == 0
+      failing.size() == 3000
+
+      cleanup:
+      failing?.close()
+    }
+
+    def "elements retried after overflowing the estimate are read back byte for byte"() {
+      given:
+      def queue = standardQueue(
+          slabBlockSize: 1024 * 1024,
+          weightEstimatePercentile: 0.99d,
+          name: 'bytes',
+          serializer: { val, bytes -> ElementCodec.writeBytes(bytes, val) },
+          deserializer: { bytes -> ElementCodec.readBytes(bytes) }
+      )
+      def random = new Random(17)
+      def values = (1..3000).collect {
+        def value = new byte[it % 500 == 0 ? 2000 : 16]
+        random.nextBytes(value)
+        value
+      }
+      def lengths = []
+
+      when:
+      values.each { queue.add(it) }
+      def polled = values.collect {
+        def value = null
+        queue.poll({ bytes ->
+          lengths << bytes.remaining()
+          value = ElementCodec.readBytes(bytes)
+        } as BytesConsumer)
+        value
+      }
+
+      then:
+      queue.estimateOverflows() > 0
+      (0..<values.size()).every { Arrays.equals(polled[it], values[it]) }
+      lengths == values.collect { ElementCodec.weighBytes(it) }
+
+      cleanup:
+      queue?.close()
+    }
+  }
+
+  static class ChunkedMessages extends ChronicleBlockingQueueSpec {
+    def chunkedArgs = [
+        messageCapacity: 256,
+        chunkedMessages: true,
+        serializer: { val, bytes -> ElementCodec.writeBytes(bytes, val) },
+        deserializer: { bytes -> ElementCodec.readBytes(bytes) }
+    ]
+
+    @AutoCleanup
+    ChronicleBlockingQueue testObject = standardQueue(chunkedArgs)
+
+    def large = (0..<40000).collect { it as byte } as byte[]
+    def small = [1, 2, 3] as byte[]
+
+    def "elements larger than messageCapacity span excerpts and slabs"() {
+      when:
+      testObject.add(small)
+      testObject.add(large)
+      testObject.add(small)
+
+      then:
+      testObject.size() == 3
+      tempDir().listFiles().findAll { it.name.endsWith('.index') }.size() > 3
+      testObject.poll() == small
+      testObject.poll() == large
+      testObject.poll() == small
+      testObject.poll() == null
+    }
+
+    def "spanned slabs are deleted once the element is consumed"() {
+      given:
+      testObject.add(large)
+      testObject.add(small)
+
+      when:
+      testObject.poll()
+
+      then:
+      tempDir().listFiles().findAll { it.name.endsWith('.index') }.size() == 1
+      testObject.poll() == small
+    }
+
+    def "peek and iteration reassemble chunked elements"() {
+      given:
+      testObject.add(large)
+      testObject.add(small)
+
+      expect:
+      testObject.peek() == large
+      testObject.toArray() == [large, small] as Object[]
+      testObject.size() == 2
+    }
+
+    def "drainTo reassembles chunked elements"() {
+      given:
+      testObject.add(small)
+      testObject.add(large)
+      testObject.add(small)
+      def target = []
+
+      expect:
+      testObject.drainTo(target) == 3
+      target == [small, large, small]
+      testObject.empty
+    }
 
-    def "offer stops accepting entries when full"() {
-      given: "a full Q"
-      while (testObject.offer(1));
+    def "competing consumers claim a chunked element as a whole"() {
+      given:
+      def competing = standardQueue(chunkedArgs + [competingConsumers: true])
+      competing.add(large)
+      competing.add(small)
 
       expect:
-      ! testObject.offer(666)
+      competing.poll() == large
+      competing.poll() == small
+      competing.poll() == null
+
+      cleanup:
+      competing?.close()
     }
 
-    def "add must throw when full"() {
-      given: "a full Q"
-      while (testObject.offer(1));
+    def "elements that can never fit the queue are rejected"() {
+      given:
+      def bounded = standardQueue(chunkedArgs + [maxNumberOfSlabs: 3])
 
       when:
-      testObject.add(666)
+      bounded.offer(large)
 
       then:
-      thrown IllegalStateException
+      thrown(IllegalArgumentException)
+
+      cleanup:
+      bounded?.close()
     }
 
-    def "offer must begin accepting once a slab worths has been removed"() {
-      given: "a full Q"
-      while (testObject.offer(1));
-      def size = testObject.size()
+    def "serializer failures are not mistaken for overflowing the buffer"() {
+      given:
+      def failing = standardQueue(chunkedArgs + [
+          serializer: { val, bytes -> [].get(0) }
+      ])
 
       when:
-      (size / 2).times { testObject.remove() }
+      failing.offer(small)
 
       then:
-      testObject.offer(666)
+      thrown(IndexOutOfBoundsException)
+      failing.empty
+
+      cleanup:
+      failing?.close()
     }
   }
 
@@ -607,6 +1365,261 @@ abstract class ChronicleBlockingQueueSpec extends Specification {
     }
   }
 
+  @Timeout(value = 5, unit = SECONDS)
+  static class SignalledBlockingOperations extends ChronicleBlockingQueueSpec {
+
+    @AutoCleanup
+    ChronicleBlockingQueue testObject = standardQueue(waitStrategy: new BlockingWaitStrategy())
+
+    @AutoCleanup("shutdownNow")
+    ExecutorService executor = Executors.newCachedThreadPool()
+
+    def "take is woken by add"() {
+      given:
+      def taking = new BlockingVariable()
+      def taker = executor.submit({
+        taking.set(true)
+        testObject.take()
+      } as Callable)
+
+      when:
+      taking.get()
+      Thread.sleep(10)
+      testObject << 42
+
+      then:
+      taker.get() == 42
+    }
+
+    def "poll with timeout - times out in ~timeout"() {
+      given:
+      def start = System.nanoTime()
+
+      when:
+      def result = testObject.poll(1, MILLISECONDS)
+      def finished = System.nanoTime()
+
+      then:
+      result == null
+      def time = (finished - start)
+      time >= MILLISECONDS.toNanos(1)
+      time <= MILLISECONDS.toNanos(10)
+    }
+  }
+
+  @Timeout(value = 5, unit = SECONDS)
+  static class SharedSignal extends ChronicleBlockingQueueSpec {
+
+    @AutoCleanup
+    ChronicleBlockingQueue consumer = standardQueue(sharedSignal: true)
+
+    @AutoCleanup
+    ChronicleBlockingQueue producer = standardQueue(sharedSignal: true)
+
+    @AutoCleanup("shutdownNow")
+    ExecutorService executor = Executors.newCachedThreadPool()
+
+    def "creates the signal file"() {
+      expect:
+      new File(tempDir(), 'chronicleblockingqueue.signal').exists()
+    }
+
+    def "take is woken by an append through another queue instance"() {
+      given:
+      def taking = new BlockingVariable()
+      def taker = executor.submit({
+        taking.set(true)
+        consumer.take()
+      } as Callable)
+
+      when:
+      taking.get()
+      Thread.sleep(10)
+      producer << 42
+
+      then:
+      taker.get() == 42
+    }
+  }
+
+  @Timeout(value = 10, unit = SECONDS)
+  static class MultiProducer extends ChronicleBlockingQueueSpec {
+
+    @AutoCleanup
+    ChronicleBlockingQueue testObject = standardQueue(multiProducer: true)
+
+    def "concurrent producers neither lose nor reorder their elements"() {
+      given:
+      def producers = 4
+      def perProducer = 2000
+
+      when:
+      def threads = (0..<producers).collect { p ->
+        Thread.start {
+          perProducer.times { i -> testObject.put(p * perProducer + i) }
+        }
+      }
+      threads*.join()
+      def output = []
+      testObject.drainTo(output)
+
+      then:
+      output.size() == producers * perProducer
+      output as Set == (0..<producers * perProducer) as Set
+      (0..<producers).every { p ->
+        def mine = output.findAll { it.intdiv(perProducer) == p }
+        mine == mine.sort(false)
+      }
+    }
+  }
+
+  @Timeout(value = 10, unit = SECONDS)
+  static class CompetingConsumers extends ChronicleBlockingQueueSpec {
+
+    @AutoCleanup
+    ChronicleBlockingQueue testObject = standardQueue(competingConsumers: true)
+
+    def "poll returns the elements in the order they where appended"() {
+      given:
+      testObject.addAll(1..20)
+
+      expect:
+      (1..20).every { testObject.poll() == it }
+      testObject.poll() == null
+      testObject.empty
+    }
+
+    def "each element is delivered to exactly one consumer"() {
+      given:
+      def total = 8000
+      testObject.addAll(1..total)
+
+      when:
+      def outputs = (1..4).collect { [] }
+      def threads = outputs.collect { output ->
+        Thread.start {
+          def value
+          while ((value = testObject.poll()) != null)
+            output << value
+        }
+      }
+      threads*.join()
+      def all = outputs.flatten()
+
+      then:
+      all.size() == total
+      all as Set == (1..total) as Set
+      outputs.every { it == it.sort(false) }
+      testObject.empty
+    }
+
+    def "drainTo claims long runs in batches"() {
+      given:
+      testObject.addAll(1..500)
+      def target = []
+
+      expect:
+      testObject.drainTo(target, 450) == 450
+      target == (1..450).toList()
+      testObject.drainTo(target) == 50
+      target == (1..500).toList()
+      testObject.empty
+    }
+
+    def "consumers falling behind never reopen deleted or pooled slabs"() {
+      given:
+      def pooled = standardQueue(competingConsumers: true, slabPoolSize: 2, name: 'pooled')
+      def total = 8000
+      pooled.addAll(1..total)
+      def slabs = { tempDir().listFiles().count { it.name ==~ /pooled-\d+\.index/ } }
+
+      when:
+      def outputs = (1..4).collect { [] }
+      def failures = []
+      def threads = outputs.withIndex().collect { output, i ->
+        Thread.start {
+          try {
+            while (true) {
+              if (i % 2 == 0) {
+                def value = pooled.poll()
+                if (value == null) break
+                output << value
+              } else if (pooled.drainTo(output, 3) == 0) {
+                break
+              }
+            }
+          } catch (Throwable t) {
+            failures << t
+          }
+        }
+      }
+      threads*.join()
+      def all = outputs.flatten()
+
+      then:
+      failures.empty
+      all.size() == total
+      all as Set == (1..total) as Set
+      slabs() == 1
+
+      cleanup:
+      pooled?.close()
+    }
+  }
+
+  @Timeout(value = 10, unit = SECONDS)
+  static class MultiProcess extends ChronicleBlockingQueueSpec {
+
+    // separate instances on the same directory stand in for separate processes
+    @AutoCleanup
+    ChronicleBlockingQueue first = standardQueue(multiProcess: true)
+
+    @AutoCleanup
+    ChronicleBlockingQueue second = standardQueue(multiProcess: true)
+
+    def "creates the manifest file"() {
+      expect:
+      new File(tempDir(), 'chronicleblockingqueue.manifest').exists()
+    }
+
+    def "alternating appends from two instances are all retained in order"() {
+      when:
+      (1..20).each { (it % 2 ? first : second).add(it) }
+
+      then:
+      first.size() == 20
+      (1..20).every { second.poll() == it }
+      first.poll() == null
+    }
+
+    def "concurrent producers and consumers in separate instances"() {
+      given:
+      def perProducer = 2000
+      def producers = [first, second].withIndex().collect { queue, p ->
+        Thread.start {
+          perProducer.times { i -> queue.put(p * perProducer + i) }
+        }
+      }
+      producers*.join()
+
+      when:
+      def outputs = [[], []]
+      def consumers = [first, second].withIndex().collect { queue, c ->
+        Thread.start {
+          def value
+          while ((value = queue.poll()) != null)
+            outputs[c] << value
+        }
+      }
+      consumers*.join()
+      def all = outputs.flatten()
+
+      then:
+      all.size() == 2 * perProducer
+      all as Set == (0..<2 * perProducer) as Set
+    }
+  }
+
   static class Drain extends ChronicleBlockingQueueSpec {
 
     def testObject = standardQueue()
@@ -656,6 +1669,135 @@ abstract class ChronicleBlockingQueueSpec extends Specification {
       target.size() == 10
       target == (1..10) as List
     }
+
+    def "drain(collect) walks across slabs, deleting the drained ones"() {
+      given:
+      testObject.addAll(1..5000)
+      def slabs = { tempDir().listFiles().count { it.name.endsWith('.index') } }
+      def slabsBefore = slabs()
+      def target = []
+
+      when:
+      def transferred = testObject.drainTo(target, 4900)
+
+      then:
+      transferred == 4900
+      target == (1..4900) as List
+      testObject.size() == 100
+      slabsBefore > 2
+      slabs() <= 2
+      testObject.poll() == 4901
+    }
+
+    def "drain(collect) with competing consumers claims runs of elements"() {
+      given:
+      def competing = standardQueue(competingConsumers: true, name: 'competing')
+      competing.addAll(1..1000)
+      def target = []
+
+      when:
+      def transferred = competing.drainTo(target)
+
+      then:
+      transferred == 1000
+      target == (1..1000) as List
+      competing.empty
+      competing.poll() == null
+
+      cleanup:
+      competing?.close()
+    }
+  }
+
+  static class BytesConsumption extends ChronicleBlockingQueueSpec {
+
+    @AutoCleanup
+    ChronicleBlockingQueue testObject = standardQueue(
+        serializer: { val, bytes -> bytes.writeInt(val) },
+        deserializer: { bytes -> bytes.readInt() }
+    )
+
+    def "poll(consumer) hands over the bytes of each element in order"() {
+      given:
+      testObject.addAll(1..50)
+      def output = []
+      def consumer = { bytes -> output << bytes.readInt() } as BytesConsumer
+
+      when:
+      while (testObject.poll(consumer));
+
+      then:
+      output == (1..50) as List
+      testObject.isEmpty()
+    }
+
+    def "poll(consumer) returns false on an empty queue"() {
+      expect:
+      !testObject.poll({ bytes -> throw new AssertionError() } as BytesConsumer)
+    }
+
+    def "an element whose consumer throws is delivered again"() {
+      given:
+      testObject.add(1)
+
+      when:
+      testObject.poll({ bytes -> throw new IllegalArgumentException() } as BytesConsumer)
+
+      then:
+      thrown IllegalArgumentException
+      testObject.poll() == 1
+    }
+
+    @Timeout(value = 5, unit = SECONDS)
+    def "take(consumer) waits for an element"() {
+      given:
+      def result = new BlockingVariable<Integer>(5)
+      Thread.start {
+        testObject.take({ bytes -> result.set(bytes.readInt()) } as BytesConsumer)
+      }
+
+      when:
+      testObject.add(42)
+
+      then:
+      result.get() == 42
+    }
+  }
+
+  static class BytesWriting extends ChronicleBlockingQueueSpec {
+
+    @AutoCleanup
+    ChronicleBlockingQueue testObject = standardQueue(
+        maxNumberOfSlabs: 2,
+        deserializer: { bytes -> bytes.readInt() }
+    )
+
+    def "offerBytes appends what the writer writes"() {
+      when:
+      (1..50).each { val -> testObject.offerBytes(4, { bytes -> bytes.writeInt(val) } as BytesWriter) }
+
+      then:
+      testObject.size() == 50
+      (1..50).every { testObject.poll() == it }
+    }
+
+    def "only the bytes written are used"() {
+      when: 'writing 4 bytes against a generous weight'
+      def count = 0
+      while (testObject.offerBytes(1024, { bytes -> bytes.writeInt(1) } as BytesWriter))
+        count++
+
+      then: 'far more than a weight per slab fit'
+      count > 2 * (8 * 1024 / 1024)
+    }
+
+    def "weight must not exceed messageCapacity"() {
+      when:
+      testObject.offerBytes(128 * 1024 + 1, { bytes -> } as BytesWriter)
+
+      then:
+      thrown IllegalArgumentException
+    }
   }
 
   static class Serialisation extends ChronicleBlockingQueueSpec {
@@ -676,6 +1818,25 @@ abstract class ChronicleBlockingQueueSpec extends Specification {
       output == (1..50) as List
     }
 
+    def "elementType selects a specialised serializer/deserializer pair"() {
+      given:
+      def testObject = ChronicleBlockingQueue.builder(tempDir())
+          .slabBlockSize(8 * 1024)
+          .elementType(String)
+          .build()
+
+      when:
+      testObject.addAll((1..50).collect { "value $it".toString() })
+      def output = []
+      testObject.drainTo output
+
+      then:
+      output == (1..50).collect { "value $it".toString() }
+
+      cleanup:
+      testObject?.close()
+    }
+
     def "custom serializer but not deserializer explodes"() {
       given:
       def testObject = standardQueue(
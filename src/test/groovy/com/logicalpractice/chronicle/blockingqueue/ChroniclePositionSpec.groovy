@@ -49,4 +49,19 @@ class ChroniclePositionSpec extends Specification {
     !didSwap
     testObject.get() == 1L
   }
+
+  def "position packs slab and index into a single value"() {
+    when:
+    def value = ChroniclePosition.position(slab, index)
+
+    then:
+    ChroniclePosition.slab(value) == slab
+    ChroniclePosition.index(value) == index
+
+    where:
+    slab | index
+    1    | -1
+    1    | 0
+    42   | 1234
+  }
 }
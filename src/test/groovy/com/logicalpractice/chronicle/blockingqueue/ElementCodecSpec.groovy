@@ -0,0 +1,94 @@
+package com.logicalpractice.chronicle.blockingqueue
+
+import net.openhft.lang.io.ByteBufferBytes
+import net.openhft.lang.io.Bytes
+import net.openhft.lang.io.serialization.BytesMarshallable
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.nio.ByteBuffer
+
+class ElementCodecSpec extends Specification {
+
+  Bytes bytes = new ByteBufferBytes(ByteBuffer.allocate(1024))
+
+  def roundTrip(ElementCodec codec, element) {
+    codec.serialize(element, bytes)
+    def written = bytes.position()
+    bytes.position(0L)
+    def result = codec.deserialize(bytes)
+    assert bytes.position() == written
+    result
+  }
+
+  @Unroll
+  def "round trips a #type.simpleName"() {
+    given:
+    def codec = ElementCodec.forType(type)
+
+    expect:
+    roundTrip(codec, element) == element
+
+    where:
+    type      | element
+    Long      | Long.MIN_VALUE
+    Integer   | 42
+    Double    | 1.5d
+    Float     | 2.5f
+    Short     | (short) 7
+    Character | ('x' as char)
+    Byte      | (byte) 3
+    Boolean   | true
+    String    | 'héllo wörld'
+    Date      | new Date(1000L)
+  }
+
+  def "round trips a byte[]"() {
+    expect:
+    roundTrip(ElementCodec.forType(byte[]), [1, 2, 3] as byte[]) == [1, 2, 3] as byte[]
+  }
+
+  def "round trips a BytesMarshallable"() {
+    when:
+    def result = roundTrip(ElementCodec.forType(Point), new Point(x: 3, y: 4))
+
+    then:
+    result.x == 3
+    result.y == 4
+  }
+
+  def "fixed width types weigh exactly"() {
+    expect:
+    ElementCodec.forType(Long).weigh(1L) == 8
+    ElementCodec.forType(Integer).weigh(1) == 4
+  }
+
+  def "weight is an upper bound for a String"() {
+    given:
+    def codec = ElementCodec.forType(String)
+    def value = '€' * 10
+
+    when:
+    codec.serialize(value, bytes)
+
+    then:
+    bytes.position() <= codec.weigh(value)
+  }
+
+  static class Point implements BytesMarshallable {
+    int x
+    int y
+
+    @Override
+    void readMarshallable(Bytes in) {
+      x = in.readInt()
+      y = in.readInt()
+    }
+
+    @Override
+    void writeMarshallable(Bytes out) {
+      out.writeInt(x)
+      out.writeInt(y)
+    }
+  }
+}
@@ -0,0 +1,94 @@
+package com.logicalpractice.chronicle.blockingqueue
+
+import com.google.common.io.Files
+import spock.lang.AutoCleanup
+import spock.lang.Specification
+import spock.lang.Timeout
+
+import static java.util.concurrent.TimeUnit.SECONDS
+
+class PrimitiveQueueSpec extends Specification {
+
+  def tempDir = Files.createTempDir()
+
+  ChronicleBlockingQueue.Builder builder = ChronicleBlockingQueue.builder(tempDir).slabBlockSize(8 * 1024)
+
+  def "long values are polled in the order offered"() {
+    given:
+    def testObject = new ChronicleLongBlockingQueue(builder)
+
+    when:
+    (1L..2000L).each { testObject.offerLong(Long.MAX_VALUE - it) }
+
+    then:
+    testObject.size() == 2000
+    (1L..2000L).every { testObject.pollLong(-1L) == Long.MAX_VALUE - it }
+    testObject.pollLong(-1L) == -1L
+
+    cleanup:
+    testObject.close()
+  }
+
+  def "int values are polled in the order offered"() {
+    given:
+    def testObject = new ChronicleIntBlockingQueue(builder)
+
+    when:
+    (1..2000).each { testObject.offerInt(-it) }
+
+    then:
+    (1..2000).every { testObject.pollInt(0) == -it }
+    testObject.pollInt(0) == 0
+
+    cleanup:
+    testObject.close()
+  }
+
+  def "double values are polled in the order offered"() {
+    given:
+    def testObject = new ChronicleDoubleBlockingQueue(builder)
+
+    when:
+    (1..2000).each { testObject.offerDouble(it / 3.0d) }
+
+    then:
+    (1..2000).every { testObject.pollDouble(Double.NaN) == it / 3.0d }
+    Double.isNaN(testObject.pollDouble(Double.NaN))
+
+    cleanup:
+    testObject.close()
+  }
+
+  def "values are shared with the boxed view"() {
+    given:
+    def testObject = new ChronicleLongBlockingQueue(builder)
+
+    when:
+    testObject.asQueue().add(7L)
+    testObject.offerLong(8L)
+
+    then:
+    testObject.takeLong() == 7L
+    testObject.asQueue().poll() == 8L
+
+    cleanup:
+    testObject.close()
+  }
+
+  @Timeout(value = 5, unit = SECONDS)
+  def "takeLong waits for a value"() {
+    given:
+    def testObject = new ChronicleLongBlockingQueue(builder)
+    def taken = Thread.start { testObject.takeLong() }
+
+    when:
+    testObject.offerLong(42L)
+    taken.join()
+
+    then:
+    testObject.isEmpty()
+
+    cleanup:
+    testObject.close()
+  }
+}
@@ -0,0 +1,126 @@
+package com.logicalpractice.chronicle.blockingqueue
+
+import com.google.common.io.Files
+import net.openhft.lang.io.ByteBufferBytes
+import spock.lang.Specification
+
+import javax.tools.DiagnosticCollector
+import javax.tools.JavaFileObject
+import javax.tools.SimpleJavaFileObject
+import javax.tools.ToolProvider
+import java.nio.ByteBuffer
+
+class QueueElementProcessorSpec extends Specification {
+
+  def outputDir = Files.createTempDir()
+  def diagnostics = new DiagnosticCollector<JavaFileObject>()
+
+  boolean compile(Map<String, String> sources) {
+    def compiler = ToolProvider.systemJavaCompiler
+    def units = sources.collect { name, code ->
+      new SimpleJavaFileObject(URI.create("string:///${name.replace('.', '/')}.java"), JavaFileObject.Kind.SOURCE) {
+        @Override
+        CharSequence getCharContent(boolean ignoreEncodingErrors) { code }
+      }
+    }
+    def options = ['-d', outputDir.path, '-classpath', System.getProperty('java.class.path')]
+    def task = compiler.getTask(null, null, diagnostics, options, null, units)
+    task.processors = [new QueueElementProcessor()]
+    task.call()
+  }
+
+  ClassLoader loader() {
+    new URLClassLoader([outputDir.toURI().toURL()] as URL[], getClass().classLoader)
+  }
+
+  def "generates a codec that round trips every supported field type"() {
+    given:
+    assert compile(
+        'sample.Colour': 'package sample; public enum Colour { RED, GREEN }',
+        'sample.Inner': '''
+            package sample;
+            @com.logicalpractice.chronicle.blockingqueue.QueueElement
+            public class Inner { public long id; }
+        ''',
+        'sample.Message': '''
+            package sample;
+            @com.logicalpractice.chronicle.blockingqueue.QueueElement
+            public class Message {
+              public int count;
+              public double price;
+              public boolean flag;
+              public Long boxed;
+              public String text;
+              public String missing;
+              public byte[] payload;
+              public Colour colour;
+              public Inner inner;
+              private short hidden;
+              transient int ignored;
+              public short getHidden() { return hidden; }
+              public void setHidden(short hidden) { this.hidden = hidden; }
+            }
+        ''')
+    def loader = loader()
+    def message = loader.loadClass('sample.Message').newInstance()
+    message.count = 3
+    message.price = 1.25d
+    message.flag = true
+    message.boxed = 7L
+    message.text = 'héllo'
+    message.payload = [1, 2, 3] as byte[]
+    message.colour = loader.loadClass('sample.Colour').enumConstants[1]
+    message.inner = loader.loadClass('sample.Inner').newInstance()
+    message.inner.id = 99L
+    message.hidden = 5 as short
+    message.ignored = 11
+    def codec = ElementCodec.forType(message.getClass())
+    def bytes = new ByteBufferBytes(ByteBuffer.allocate(1024))
+
+    when:
+    codec.serialize(message, bytes)
+    def written = bytes.position()
+    bytes.position(0L)
+    def result = codec.deserialize(bytes)
+
+    then:
+    written == codec.weigh(message)
+    result.count == 3
+    result.price == 1.25d
+    result.flag
+    result.boxed == 7L
+    result.text == 'héllo'
+    result.missing == null
+    result.payload == [1, 2, 3] as byte[]
+    result.colour.name() == 'GREEN'
+    result.inner.id == 99L
+    result.hidden == 5 as short
+    result.ignored == 0
+  }
+
+  def "rejects unsupported field types"() {
+    when:
+    def compiled = compile('sample.Bad': '''
+        package sample;
+        @com.logicalpractice.chronicle.blockingqueue.QueueElement
+        public class Bad { public java.util.List<String> values; }
+    ''')
+
+    then:
+    !compiled
+    diagnostics.diagnostics*.getMessage(null).any { it.contains('unsupported @QueueElement field type') }
+  }
+
+  def "rejects private fields without accessors"() {
+    when:
+    def compiled = compile('sample.Hidden': '''
+        package sample;
+        @com.logicalpractice.chronicle.blockingqueue.QueueElement
+        public class Hidden { private int value; }
+    ''')
+
+    then:
+    !compiled
+    diagnostics.diagnostics*.getMessage(null).any { it.contains('requires a getter') }
+  }
+}
@@ -0,0 +1,105 @@
+package com.logicalpractice.chronicle.blockingqueue
+
+import net.openhft.chronicle.Chronicle
+import spock.lang.Specification
+import spock.lang.Timeout
+
+import java.util.concurrent.CountDownLatch
+
+class SlabCacheSpec extends Specification {
+
+  def opened = [:]
+
+  SlabCache testObject = new SlabCache({ int slab -> opened[slab] = Mock(Chronicle) }, 1)
+
+  def "acquiring an open slab returns the same chronicle"() {
+    when:
+    def first = testObject.acquire(1)
+    def second = testObject.acquire(1)
+
+    then:
+    first.is(second)
+    opened.size() == 1
+  }
+
+  def "a released slab stays open while within maxIdle"() {
+    given:
+    def chronicle = testObject.acquire(1)
+
+    when:
+    testObject.release(chronicle)
+
+    then:
+    0 * chronicle.close()
+    testObject.acquire(1).is(chronicle)
+  }
+
+  def "the least recently used idle slab is closed beyond maxIdle"() {
+    given:
+    def one = testObject.acquire(1)
+    def two = testObject.acquire(2)
+    testObject.release(one)
+
+    when:
+    testObject.release(two)
+
+    then:
+    1 * one.close()
+    0 * two.close()
+  }
+
+  def "an evicted slab is closed once released and reopened on acquire"() {
+    given:
+    def chronicle = testObject.acquire(1)
+
+    when:
+    testObject.evict(1)
+
+    then:
+    0 * chronicle.close()
+
+    when:
+    testObject.release(chronicle)
+
+    then:
+    1 * chronicle.close()
+    !testObject.acquire(1).is(chronicle)
+  }
+
+  @Timeout(5)
+  def "other slabs are acquired and released while one is being opened"() {
+    given:
+    def opening = new CountDownLatch(1)
+    def proceed = new CountDownLatch(1)
+    def one = testObject.acquire(1)
+    def slow = Mock(Chronicle)
+    def producer = Thread.start {
+      testObject.acquire(2, { opening.countDown(); proceed.await(); slow })
+    }
+    opening.await()
+
+    when:
+    testObject.release(one)
+    def again = testObject.acquire(1)
+    proceed.countDown()
+    producer.join()
+
+    then:
+    again.is(one)
+    testObject.acquire(2).is(slow)
+  }
+
+  def "acquiring a slab whose opening failed fails, and a later acquire opens it again"() {
+    when:
+    testObject.acquire(1, { throw new IllegalStateException('no space') })
+
+    then:
+    thrown(IllegalStateException)
+
+    when:
+    def chronicle = testObject.acquire(1)
+
+    then:
+    chronicle.is(opened[1])
+  }
+}
@@ -0,0 +1,157 @@
+package com.logicalpractice.chronicle.blockingqueue
+
+import spock.lang.Specification
+import spock.lang.Timeout
+import spock.lang.Unroll
+
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.function.Supplier
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS
+import static java.util.concurrent.TimeUnit.SECONDS
+
+/**
+ *
+ */
+@Unroll
+@Timeout(value = 5, unit = SECONDS)
+class WaitStrategySpec extends Specification {
+
+  static strategies() {
+    [
+        new BusySpinWaitStrategy(),
+        new SpinThenYieldWaitStrategy(),
+        new BackoffWaitStrategy(),
+        new BlockingWaitStrategy()
+    ]
+  }
+
+  def "#strategy returns the result of the first successful attempt"() {
+    given:
+    def attempts = new AtomicInteger()
+
+    when:
+    def result = strategy.waitFor({ attempts.incrementAndGet() == 3 ? 'done' : null } as Supplier, WaitStrategy.NO_DEADLINE)
+
+    then:
+    result == 'done'
+    attempts.get() == 3
+
+    where:
+    strategy << strategies().findAll { !(it instanceof BlockingWaitStrategy) }
+  }
+
+  def "#strategy returns null once the deadline passes"() {
+    given:
+    def start = System.nanoTime()
+
+    when:
+    def result = strategy.waitFor({ null } as Supplier, WaitStrategy.deadline(1, MILLISECONDS))
+    def time = System.nanoTime() - start
+
+    then:
+    result == null
+    time >= MILLISECONDS.toNanos(1)
+    time <= MILLISECONDS.toNanos(50) // generous, the first attempt warms up the closure
+
+    where:
+    strategy << strategies()
+  }
+
+  def "#strategy is interruptable"() {
+    given:
+    def caught = null
+    def thread = Thread.start {
+      try {
+        strategy.waitFor({ null } as Supplier, WaitStrategy.NO_DEADLINE)
+      } catch (InterruptedException e) {
+        caught = e
+      }
+    }
+
+    when:
+    Thread.sleep(1)
+    thread.interrupt()
+    thread.join()
+
+    then:
+    caught instanceof InterruptedException
+
+    where:
+    strategy << strategies()
+  }
+
+  def "blocking strategy waits for signalAll"() {
+    given:
+    def strategy = new BlockingWaitStrategy()
+    def ready = false
+    def waiter = Thread.start {
+      strategy.waitFor({ ready ? 'ready' : null } as Supplier, WaitStrategy.NO_DEADLINE)
+    }
+
+    when:
+    Thread.sleep(10)
+
+    then:
+    waiter.alive
+
+    when:
+    ready = true
+    strategy.signalAll()
+    waiter.join()
+
+    then:
+    !waiter.alive
+  }
+
+  def "blocking strategy unparks every waiter on signalAll"() {
+    given:
+    def strategy = new BlockingWaitStrategy(0)
+    def ready = new AtomicInteger()
+    def waiters = (1..4).collect {
+      Thread.start {
+        strategy.waitFor({ ready.get() > 0 ? 'ready' : null } as Supplier, WaitStrategy.NO_DEADLINE)
+      }
+    }
+
+    when:
+    Thread.sleep(10)
+    ready.set(1)
+    strategy.signalAll()
+    waiters*.join()
+
+    then:
+    waiters.every { !it.alive }
+  }
+
+  def "blocking strategy spins no further once the deadline has passed"() {
+    given:
+    def attempts = new AtomicInteger()
+
+    when:
+    def result = new BlockingWaitStrategy().waitFor({ attempts.incrementAndGet(); null } as Supplier, WaitStrategy.deadline(0, MILLISECONDS))
+
+    then:
+    result == null
+    attempts.get() == 1
+  }
+
+  def "blocking strategy spins no further once interrupted"() {
+    given:
+    def attempts = new AtomicInteger()
+    Thread.currentThread().interrupt()
+
+    when:
+    new BlockingWaitStrategy().waitFor({ attempts.incrementAndGet(); null } as Supplier, WaitStrategy.NO_DEADLINE)
+
+    then:
+    thrown(InterruptedException)
+    attempts.get() == 1
+  }
+
+  def "deadline saturates rather than overflowing"() {
+    expect:
+    WaitStrategy.deadline(Long.MAX_VALUE, SECONDS) == WaitStrategy.NO_DEADLINE
+    WaitStrategy.remaining(WaitStrategy.NO_DEADLINE) == Long.MAX_VALUE
+  }
+}
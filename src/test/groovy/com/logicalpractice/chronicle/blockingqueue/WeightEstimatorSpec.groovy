@@ -0,0 +1,43 @@
+package com.logicalpractice.chronicle.blockingqueue
+
+import spock.lang.Specification
+
+class WeightEstimatorSpec extends Specification {
+
+  WeightEstimator testObject = new WeightEstimator(0.99d, 128 * 1024)
+
+  def "no estimate until enough sizes are recorded"() {
+    when:
+    100.times { testObject.record(200) }
+
+    then:
+    testObject.estimate() == -1
+  }
+
+  def "estimate is the power of two covering the percentile"() {
+    when:
+    1024.times { testObject.record(it % 200 == 0 ? 5000 : 200) }
+
+    then: 'the 0.6% of outliers are not covered'
+    testObject.estimate() == 256
+  }
+
+  def "estimate follows a change in size"() {
+    given:
+    1024.times { testObject.record(200) }
+
+    when:
+    (4 * 1024).times { testObject.record(3000) }
+
+    then:
+    testObject.estimate() == 4096
+  }
+
+  def "estimate never exceeds maxWeight"() {
+    when:
+    1024.times { testObject.record(1024 * 1024) }
+
+    then:
+    testObject.estimate() == 128 * 1024
+  }
+}